@@ -44,6 +44,8 @@ public class CreativeTableBlockEntity extends BlockEntity implements GeoBlockEnt
     private int scanningTicksRemaining;
     private boolean scanningFinished;
     private static final int MIN_SCAN_DURATION_TICKS = 100;
+    // Same reach as a vanilla container
+    private static final double MAX_USE_DISTANCE_SQR = 64.0;
     
     public CreativeTableBlockEntity(BlockPos pos, BlockState state) {
         super(ModBlockEntities.CREATIVE_TABLE.get(), pos, state);
@@ -232,6 +234,14 @@ public class CreativeTableBlockEntity extends BlockEntity implements GeoBlockEnt
         setChanged();
     }
 
+    /**
+     * Whether a player is close enough to work the table
+     */
+    public boolean isWithinReach(Player player) {
+        return player.distanceToSqr(worldPosition.getX() + 0.5, worldPosition.getY() + 0.5, worldPosition.getZ() + 0.5) 
+            <= MAX_USE_DISTANCE_SQR;
+    }
+
     /**
      * Start the scanning process
      */
@@ -39,7 +39,8 @@ public class CleanupCommand {
                 .then(Commands.literal("cleanup")
                     .executes(CleanupCommand::runCleanup))
                 .then(Commands.literal("stats")
-                    .executes(CleanupCommand::showStats));
+                    .executes(CleanupCommand::showStats))
+                .then(ScanCommands.build());
         
         dispatcher.register(creativePrototyperCommand);
         
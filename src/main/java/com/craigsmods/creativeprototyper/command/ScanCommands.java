@@ -0,0 +1,95 @@
+package com.craigsmods.creativeprototyper.command;
+
+import com.craigsmods.creativeprototyper.util.AsyncAreaScanner;
+import com.craigsmods.creativeprototyper.util.ScanHandle;
+import com.mojang.authlib.GameProfile;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.GameProfileArgument;
+import net.minecraft.network.chat.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Admin subcommands to list and control running scans: /cproto scans [pause|resume|cancel] <player>
+ */
+public class ScanCommands {
+
+    /**
+     * Build the "scans" subcommand, attached to the main command by CleanupCommand
+     */
+    public static LiteralArgumentBuilder<CommandSourceStack> build() {
+        return Commands.literal("scans")
+            .executes(ScanCommands::listScans)
+            .then(Commands.literal("pause")
+                .then(Commands.argument("player", GameProfileArgument.gameProfile())
+                    .executes(context -> forEachScan(context, "Paused", ScanHandle::pause))))
+            .then(Commands.literal("resume")
+                .then(Commands.argument("player", GameProfileArgument.gameProfile())
+                    .executes(context -> forEachScan(context, "Resumed", ScanHandle::resume))))
+            .then(Commands.literal("cancel")
+                .then(Commands.argument("player", GameProfileArgument.gameProfile())
+                    .executes(context -> forEachScan(context, "Cancelled", ScanHandle::cancel))));
+    }
+
+    /**
+     * List every running scan with its state and progress
+     */
+    private static int listScans(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        List<ScanHandle> scans = AsyncAreaScanner.getScans();
+
+        if (scans.isEmpty()) {
+            source.sendSuccess(() -> Component.literal("No scans running"), false);
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("=== Running Scans ==="), false);
+        for (ScanHandle scan : scans) {
+            String owner = source.getServer().getProfileCache().get(scan.getPlayerId())
+                .map(GameProfile::getName)
+                .orElse(scan.getPlayerId().toString());
+            source.sendSuccess(() -> Component.literal(owner + ": table at " + scan.getTablePos().toShortString() +
+                                           ", " + scan.getState() + ", " + scan.getPlacedBlocks() + "/" +
+                                           scan.getTotalBlocks() + " blocks, " + formatMegabytes(scan.getMemoryBytes()) +
+                                           " in memory" + (scan.getSpilledBytes() > 0
+                                               ? ", " + formatMegabytes(scan.getSpilledBytes()) + " on disk" : "")), false);
+        }
+
+        return scans.size();
+    }
+
+    /**
+     * Apply an action to the scans of the selected players
+     */
+    private static int forEachScan(CommandContext<CommandSourceStack> context, String verb,
+                                   Consumer<ScanHandle> action) throws CommandSyntaxException {
+        CommandSourceStack source = context.getSource();
+        Collection<GameProfile> profiles = GameProfileArgument.getGameProfiles(context, "player");
+        int count = 0;
+
+        for (GameProfile profile : profiles) {
+            ScanHandle scan = AsyncAreaScanner.getScan(profile.getId());
+            if (scan == null) {
+                source.sendFailure(Component.literal(profile.getName() + " has no running scan"));
+                continue;
+            }
+
+            action.accept(scan);
+            source.sendSuccess(() -> Component.literal(verb + " scan of " + profile.getName()), true);
+            count++;
+        }
+
+        return count;
+    }
+
+    private static String formatMegabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
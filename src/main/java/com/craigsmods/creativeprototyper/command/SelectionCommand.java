@@ -0,0 +1,62 @@
+package com.craigsmods.creativeprototyper.command;
+
+import com.craigsmods.creativeprototyper.CreativePrototyper;
+import com.craigsmods.creativeprototyper.util.ScanSelectionManager;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.coordinates.BlockPosArgument;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * Command to select the corners of a scan area: /cpselect pos1|pos2 [pos], /cpselect clear
+ */
+@Mod.EventBusSubscriber(modid = CreativePrototyper.MOD_ID)
+public class SelectionCommand {
+
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        CommandDispatcher<CommandSourceStack> dispatcher = event.getDispatcher();
+
+        dispatcher.register(Commands.literal("cpselect")
+            .then(Commands.literal("pos1")
+                .executes(context -> setCorner(context, true, null))
+                .then(Commands.argument("pos", BlockPosArgument.blockPos())
+                    .executes(context -> setCorner(context, true, BlockPosArgument.getLoadedBlockPos(context, "pos")))))
+            .then(Commands.literal("pos2")
+                .executes(context -> setCorner(context, false, null))
+                .then(Commands.argument("pos", BlockPosArgument.blockPos())
+                    .executes(context -> setCorner(context, false, BlockPosArgument.getLoadedBlockPos(context, "pos")))))
+            .then(Commands.literal("clear")
+                .executes(SelectionCommand::clearSelection)));
+    }
+
+    /**
+     * Set a corner to the given position, or to where the player stands
+     */
+    private static int setCorner(CommandContext<CommandSourceStack> context, boolean first, BlockPos pos)
+            throws CommandSyntaxException {
+        ServerPlayer player = context.getSource().getPlayerOrException();
+        BlockPos corner = pos != null ? pos : player.blockPosition();
+
+        ScanSelectionManager.setCorner(player, first, corner);
+        context.getSource().sendSuccess(() -> Component.literal(
+            (first ? "First" : "Second") + " corner set to " + corner.toShortString()), false);
+        return 1;
+    }
+
+    private static int clearSelection(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        ServerPlayer player = context.getSource().getPlayerOrException();
+        ScanSelectionManager.clear(player.getUUID());
+        context.getSource().sendSuccess(() -> Component.literal("Selection cleared"), false);
+        return 1;
+    }
+}
@@ -2,6 +2,7 @@ package com.craigsmods.creativeprototyper.config;
 
 import com.craigsmods.creativeprototyper.CreativePrototyper;
 import com.craigsmods.creativeprototyper.util.BannedBlocksManager;
+import com.craigsmods.creativeprototyper.util.PlacementScheduler;
 
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
@@ -20,10 +21,28 @@ public class CreativePrototyperConfig {
         // Scanning settings
         public final ForgeConfigSpec.IntValue defaultScanRadius;
         public final ForgeConfigSpec.IntValue maxScanRadius;
+        public final ForgeConfigSpec.IntValue maxEstimatedBlocks;
+        public final ForgeConfigSpec.IntValue maxBlockEntities;
         public final ForgeConfigSpec.IntValue blockEntitiesPerTick;
+        public final ForgeConfigSpec.IntValue blockEntityBytesPerTick;
+        public final ForgeConfigSpec.BooleanValue incrementalRescan;
+        public final ForgeConfigSpec.IntValue scanQueueSections;
+        public final ForgeConfigSpec.IntValue scanMemoryCeilingMb;
+        public final ForgeConfigSpec.BooleanValue shellOnlyCapture;
+        public final ForgeConfigSpec.ConfigValue<String> shellFillerBlock;
         public final ForgeConfigSpec.ConfigValue<List<? extends String>> bannedBlocks;
         // Block placement settings
         public final ForgeConfigSpec.IntValue blocksPerTick;
+        public final ForgeConfigSpec.BooleanValue bulkPlacement;
+        public final ForgeConfigSpec.BooleanValue deferredLighting;
+        public final ForgeConfigSpec.BooleanValue frozenPlacement;
+        public final ForgeConfigSpec.BooleanValue alignedPlots;
+        public final ForgeConfigSpec.BooleanValue copySourceLight;
+        public final ForgeConfigSpec.BooleanValue clearBeforeRebuild;
+        public final ForgeConfigSpec.IntValue checkpointIntervalSeconds;
+        public final ForgeConfigSpec.IntValue targetTickMillis;
+        public final ForgeConfigSpec.IntValue minPlacementMillis;
+        public final ForgeConfigSpec.EnumValue<PlacementScheduler.Policy> schedulingPolicy;
         
         Common(ForgeConfigSpec.Builder builder) {
             builder.comment("Common configuration settings for Creative Prototyper")
@@ -37,19 +56,114 @@ public class CreativePrototyperConfig {
                 .comment("Maximum allowed scan radius (for server performance)")
                 .defineInRange("maxScanRadius", 64, 1, 256);
                 
+            maxEstimatedBlocks = builder
+                .comment("Refuse scans whose estimated block count is above this, 0 for no limit.",
+                         "The estimate comes from chunk section counts, so it is checked before anything is scanned")
+                .defineInRange("maxEstimatedBlocks", 0, 0, Integer.MAX_VALUE);
+                
+            maxBlockEntities = builder
+                .comment("Refuse scans with more block entities than this, 0 for no limit.",
+                         "Block entities are saved in the same tick as the blocks so the two always match, and their data",
+                         "is held until it is placed, so this bounds both that tick and the memory the data takes")
+                .defineInRange("maxBlockEntities", 4096, 0, Integer.MAX_VALUE);
+                
             blockEntitiesPerTick = builder
-                .comment("Number of block entities to process per tick during scanning")
+                .comment("Minimum number of block entities copied per tick across all scans, even when the server has no spare tick time")
                 .defineInRange("blockEntitiesPerTick", 10, 1, 100);
                 
+            blockEntityBytesPerTick = builder
+                .comment("Bytes of serialized block entity data copied per tick across all scans.",
+                         "Large block entities like full chests count for more, so storage rooms are spread over several ticks.",
+                         "At least one block entity is always copied per tick")
+                .defineInRange("blockEntityBytesPerTick", 262144, 1024, 67108864);
+                
+            incrementalRescan = builder
+                .comment("When rescanning the same area, only replace the chunk sections that changed since the last completed build.",
+                         "Edits made in the creative dimension to unchanged sections are kept. Reset and Scan always replaces the whole build")
+                .define("incrementalRescan", true);
+                
+            scanQueueSections = builder
+                .comment("Number of scanned chunk sections that may wait for placement at once.",
+                         "The scan pauses when this many are queued, which bounds the memory a large scan needs")
+                .defineInRange("scanQueueSections", 64, 4, 4096);
+                
+            scanMemoryCeilingMb = builder
+                .comment("Megabytes of pending blocks a scan keeps in memory before spilling the rest to a temporary file.",
+                         "With a ceiling the scan runs to completion without waiting for placement, so large scans free their",
+                         "captured chunks sooner. 0 keeps everything in memory and pauses the scan until placement catches up.",
+                         "Only the block queues are covered. Saved block entity data stays in memory and is bounded by maxBlockEntities,",
+                         "section hashes, per-chunk counts and two block tall blocks stay in memory at a few bytes each")
+                .defineInRange("scanMemoryCeilingMb", 0, 0, 4096);
+                
+            shellOnlyCapture = builder
+                .comment("Only copy blocks that can be seen, meaning blocks with at least one non-opaque neighbor, plus all block entities.",
+                         "Cuts placement for terrain-heavy scans, the hidden interior is filled with shellFillerBlock")
+                .define("shellOnlyCapture", false);
+                
+            shellFillerBlock = builder
+                .comment("Block placed in place of hidden blocks when shellOnlyCapture is on. Air leaves the interior empty")
+                .define("shellFillerBlock", "minecraft:air");
+                
             builder.pop();
             
             builder.comment("Block placement settings")
                    .push("placement");
                    
             blocksPerTick = builder
-                .comment("Number of blocks to place per tick in the creative dimension")
+                .comment("Minimum number of blocks placed per tick across all scans, even when the server has no spare tick time")
                 .defineInRange("blocksPerTick", 100, 1, 1000);
                 
+            bulkPlacement = builder
+                .comment("Write blocks directly into chunk sections instead of placing them one at a time.",
+                         "Much faster for large builds, but placed blocks do not trigger neighbor updates")
+                .define("bulkPlacement", true);
+                
+            deferredLighting = builder
+                .comment("Skip light updates while bulk placement writes blocks, and relight each chunk once when its blocks are done.",
+                         "The build only opens once every chunk is relit")
+                .define("deferredLighting", true);
+                
+            frozenPlacement = builder
+                .comment("Place blocks without neighbor or shape updates and drop their scheduled ticks while building,",
+                         "so sand doesn't fall, liquids don't flow and attachments don't pop off.",
+                         "Shapes are updated in one pass over the finished build")
+                .define("frozenPlacement", false);
+                
+            alignedPlots = builder
+                .comment("Put each build at the same offset from the 16 block section grid as its table,",
+                         "so bulk placement can copy whole chunk sections at once.",
+                         "Changing this moves existing builds to a new spot")
+                .define("alignedPlots", false);
+                
+            copySourceLight = builder
+                .comment("With aligned plots, copy the source world's light along with whole sections",
+                         "and only relight where the copy meets the rest of the creative dimension")
+                .define("copySourceLight", true);
+                
+            clearBeforeRebuild = builder
+                .comment("Clear the previous build in the creative dimension before a full rescan,",
+                         "so blocks removed from the source area do not linger in the copy")
+                .define("clearBeforeRebuild", true);
+                
+            checkpointIntervalSeconds = builder
+                .comment("How often unfinished builds are saved to disk so they resume after a restart (0 = only when the server stops)")
+                .defineInRange("checkpointIntervalSeconds", 10, 0, 600);
+                
+            targetTickMillis = builder
+                .comment("Placement only uses the time left until the server's average tick reaches this many milliseconds")
+                .defineInRange("targetTickMillis", 45, 5, 50);
+                
+            minPlacementMillis = builder
+                .comment("Milliseconds per tick that placement may always use, even when the server is overloaded")
+                .defineInRange("minPlacementMillis", 1, 0, 50);
+                
+            schedulingPolicy = builder
+                .comment("How concurrent scans share the placement budget:",
+                         "ROUND_ROBIN - equal shares, taking turns at going first",
+                         "OPS_FIRST - operators go first and get a larger share",
+                         "SMALLEST_FIRST - scans with the least work left go first")
+                .defineEnum("schedulingPolicy", PlacementScheduler.Policy.ROUND_ROBIN);
+                
             builder.pop();
             builder.comment("Block restrictions")
             .push("restrictions");
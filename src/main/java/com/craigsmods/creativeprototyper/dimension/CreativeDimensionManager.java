@@ -3,7 +3,9 @@ package com.craigsmods.creativeprototyper.dimension;
 import com.craigsmods.creativeprototyper.block.CreativeTableBlockEntity;
 import com.craigsmods.creativeprototyper.registry.ModDimensions;
 import com.craigsmods.creativeprototyper.util.PlayerDataManager;
+import com.craigsmods.creativeprototyper.util.ScanRegion;
 
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerPlayer;
@@ -38,6 +40,9 @@ public class CreativeDimensionManager {
     
     // Central build position in creative dimension
     private static final Map<TableKey, BlockPos> tablePlacementPositions = new HashMap<>();
+    
+    // Section content hashes of the last completed build of each table, used for incremental rescans
+    private static final Map<TableKey, SectionHashes> tableSectionHashes = new HashMap<>();
 
     /**
      * Create and store build status for a table
@@ -85,6 +90,15 @@ public class CreativeDimensionManager {
         }
     }
     
+    /**
+     * Mark the build of a specific table as complete, whether or not its owner is online
+     */
+    public static void markBuildComplete(TableKey tableKey, int totalBlocks) {
+        tableBuildStatus.put(tableKey, new BuildStatus(totalBlocks, totalBlocks, true));
+        LOGGER.info("Marked build as complete for table {}. {}/{} blocks complete", 
+                   tableKey.tablePos, totalBlocks, totalBlocks);
+    }
+    
     /**
      * Check if the build is complete for a player's active table
      */
@@ -246,6 +260,34 @@ public class CreativeDimensionManager {
         tablePlacementPositions.put(tableKey, pos);
     }
     
+    /**
+     * Gets the section hashes of a table's last completed build
+     */
+    public static SectionHashes getSectionHashes(TableKey tableKey) {
+        return tableSectionHashes.get(tableKey);
+    }
+    
+    /**
+     * Sets the section hashes of a table's last completed build
+     */
+    public static void setSectionHashes(TableKey tableKey, SectionHashes hashes) {
+        tableSectionHashes.put(tableKey, hashes);
+    }
+    
+    /**
+     * Removes the section hashes of a table, returning the old value
+     */
+    public static SectionHashes removeSectionHashes(TableKey tableKey) {
+        return tableSectionHashes.remove(tableKey);
+    }
+    
+    /**
+     * Gets all section hashes (for persistence)
+     */
+    public static Map<TableKey, SectionHashes> getTableSectionHashes() {
+        return tableSectionHashes;
+    }
+    
     /**
      * Gets all active table keys (for persistence)
      */
@@ -302,6 +344,7 @@ public class CreativeDimensionManager {
         activeTableKeys.clear();
         tableBuildStatus.clear();
         tablePlacementPositions.clear();
+        tableSectionHashes.clear();
         returnPortals.clear();
     }
     
@@ -335,6 +378,21 @@ public class CreativeDimensionManager {
         }
     }
     
+    /**
+     * Data class for the section content hashes of a completed build
+     */
+    public static class SectionHashes {
+        public final ScanRegion region;
+        public final BlockPos placementPos;
+        public final Long2LongOpenHashMap hashes;
+        
+        public SectionHashes(ScanRegion region, BlockPos placementPos, Long2LongOpenHashMap hashes) {
+            this.region = region;
+            this.placementPos = placementPos;
+            this.hashes = hashes;
+        }
+    }
+    
     /**
      * Data class for build status
      */
@@ -3,8 +3,12 @@ package com.craigsmods.creativeprototyper.dimension;
 import com.craigsmods.creativeprototyper.CreativePrototyper;
 import com.craigsmods.creativeprototyper.block.CreativeTableBlockEntity;
 import com.craigsmods.creativeprototyper.util.AreaSnapshot;
+import com.craigsmods.creativeprototyper.util.ScanRegion;
 import com.mojang.logging.LogUtils;
 
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
@@ -96,6 +100,43 @@ public static void saveTableConnections(MinecraftServer server) {
         }
         rootTag.put("TableBuildStatus", tableBuildStatusTag);
         
+        // Save section hashes of completed builds for incremental rescans
+        ListTag sectionHashesTag = new ListTag();
+        for (Map.Entry<CreativeDimensionManager.TableKey, CreativeDimensionManager.SectionHashes> entry : 
+             CreativeDimensionManager.getTableSectionHashes().entrySet()) {
+            
+            CreativeDimensionManager.TableKey key = entry.getKey();
+            CreativeDimensionManager.SectionHashes hashes = entry.getValue();
+            
+            CompoundTag hashTag = new CompoundTag();
+            
+            // Save key info
+            hashTag.putUUID("PlayerId", key.playerId);
+            hashTag.putString("Dimension", key.dimension.location().toString());
+            hashTag.putInt("PosX", key.tablePos.getX());
+            hashTag.putInt("PosY", key.tablePos.getY());
+            hashTag.putInt("PosZ", key.tablePos.getZ());
+            
+            // Save what the hashes were computed against
+            hashTag.put("Region", hashes.region.save());
+            hashTag.putLong("Placement", hashes.placementPos.asLong());
+            
+            // Sections and hashes as two parallel arrays
+            long[] sections = new long[hashes.hashes.size()];
+            long[] sectionHashes = new long[sections.length];
+            int index = 0;
+            for (Long2LongMap.Entry hashEntry : hashes.hashes.long2LongEntrySet()) {
+                sections[index] = hashEntry.getLongKey();
+                sectionHashes[index] = hashEntry.getLongValue();
+                index++;
+            }
+            hashTag.putLongArray("Sections", sections);
+            hashTag.putLongArray("Hashes", sectionHashes);
+            
+            sectionHashesTag.add(hashTag);
+        }
+        rootTag.put("SectionHashes", sectionHashesTag);
+        
         // Save original game modes
         CompoundTag gameModesTag = new CompoundTag();
         for (Map.Entry<UUID, GameType> entry : CreativeDimensionManager.getOriginalGameModes().entrySet()) {
@@ -219,6 +260,44 @@ public static void loadTableConnections(MinecraftServer server) {
             }
         }
         
+        // Load section hashes
+        if (rootTag.contains("SectionHashes")) {
+            ListTag sectionHashesTag = rootTag.getList("SectionHashes", Tag.TAG_COMPOUND);
+            
+            for (int i = 0; i < sectionHashesTag.size(); i++) {
+                CompoundTag hashTag = sectionHashesTag.getCompound(i);
+                
+                // Get key info
+                UUID playerId = hashTag.getUUID("PlayerId");
+                ResourceKey<Level> dimension = ResourceKey.create(
+                    net.minecraft.core.registries.Registries.DIMENSION, 
+                    new ResourceLocation(hashTag.getString("Dimension"))
+                );
+                BlockPos tablePos = new BlockPos(
+                    hashTag.getInt("PosX"),
+                    hashTag.getInt("PosY"),
+                    hashTag.getInt("PosZ")
+                );
+                
+                long[] sections = hashTag.getLongArray("Sections");
+                long[] hashes = hashTag.getLongArray("Hashes");
+                if (sections.length != hashes.length) {
+                    LOGGER.warn("Skipping corrupt section hashes for table at {}", tablePos);
+                    continue;
+                }
+                
+                Long2LongOpenHashMap hashMap = new Long2LongOpenHashMap(sections.length);
+                for (int j = 0; j < sections.length; j++) {
+                    hashMap.put(sections[j], hashes[j]);
+                }
+                
+                CreativeDimensionManager.setSectionHashes(
+                    CreativeDimensionManager.createTableKey(playerId, dimension, tablePos),
+                    new CreativeDimensionManager.SectionHashes(
+                        ScanRegion.load(hashTag), BlockPos.of(hashTag.getLong("Placement")), hashMap));
+            }
+        }
+        
         // Load active keys
         if (rootTag.contains("ActiveKeys")) {
             ListTag activeKeysTag = rootTag.getList("ActiveKeys", Tag.TAG_COMPOUND);
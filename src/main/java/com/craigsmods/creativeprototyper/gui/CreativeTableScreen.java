@@ -5,11 +5,14 @@ import com.craigsmods.creativeprototyper.CreativePrototyper;
 import com.craigsmods.creativeprototyper.config.CreativePrototyperConfig;
 import com.craigsmods.creativeprototyper.networking.ModMessages;
 import com.craigsmods.creativeprototyper.networking.packet.CheckTableSnapshotC2SPacket;
+import com.craigsmods.creativeprototyper.networking.packet.EstimateScanC2SPacket;
 import com.craigsmods.creativeprototyper.networking.packet.ResetAndScanC2SPacket;
 import com.craigsmods.creativeprototyper.networking.packet.TeleportToDimensionC2SPacket;
+import com.craigsmods.creativeprototyper.util.ScanRegion;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.gui.components.Button;
+import net.minecraft.client.gui.components.CycleButton;
 import net.minecraft.client.gui.components.EditBox;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.client.renderer.GameRenderer;
@@ -17,19 +20,40 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 
+import java.util.Locale;
+
 public class CreativeTableScreen extends Screen {
     private static final ResourceLocation TEXTURE = new ResourceLocation(CreativePrototyper.MOD_ID, "textures/gui/creative_table_gui.png");
     private static final int WIDTH = 200;
     private static final int HEIGHT = 178;
+    // Ticks without edits before a new estimate is requested
+    private static final int ESTIMATE_DELAY_TICKS = 10;
+
+    /**
+     * Shape of the area to scan, as offered by the shape button
+     */
+    private enum ShapeMode {
+        CUBE,
+        BOX,
+        CYLINDER,
+        SELECTION
+    }
 
     private final BlockPos tablePos;
     private int leftPos, topPos;
+    private CycleButton<ShapeMode> shapeButton;
     private EditBox rangeField;
+    private EditBox upField;
+    private EditBox downField;
     private Button scanButton;
     private Button teleportButton;
     private boolean buildComplete = false;
+    private boolean scanning = false;
     private int scanProgress = 0;
     private Component statusText = Component.literal("");
+    private Component estimateText = Component.literal("");
+    private int estimateColor = 0xAAAAAA;
+    private int estimateDelay = 0;
 
     public CreativeTableScreen(BlockPos tablePos) {
         super(Component.translatable("gui." + CreativePrototyper.MOD_ID + ".creative_table"));
@@ -41,24 +65,50 @@ public class CreativeTableScreen extends Screen {
         leftPos = (width - WIDTH) / 2;
         topPos = (height - HEIGHT) / 2;
 
-        rangeField = new EditBox(font, leftPos + 80, topPos + 30, 60, 20, 
+        // Shape selector, the extent fields below change with it
+        shapeButton = CycleButton.<ShapeMode>builder(mode -> Component.translatable(
+                "gui." + CreativePrototyper.MOD_ID + ".shape." + mode.name().toLowerCase(Locale.ROOT)))
+            .withValues(ShapeMode.values())
+            .withInitialValue(ShapeMode.CUBE)
+            .create(leftPos + 20, topPos + 26, WIDTH - 40, 20, 
+                Component.translatable("gui." + CreativePrototyper.MOD_ID + ".shape"),
+                (button, mode) -> {
+                    updateShapeFields();
+                    scheduleEstimate();
+                });
+
+        String defaultRange = String.valueOf(CreativePrototyperConfig.COMMON.defaultScanRadius.get());
+        rangeField = new EditBox(font, leftPos + 20, topPos + 50, 50, 20, 
         Component.translatable("gui." + CreativePrototyper.MOD_ID + ".range_field"));
-        rangeField.setValue(String.valueOf(CreativePrototyperConfig.COMMON.defaultScanRadius.get())); // Default value from config
+        rangeField.setValue(defaultRange); // Default value from config
         rangeField.setFilter(this::isValidRange);
+        rangeField.setHint(Component.translatable("gui." + CreativePrototyper.MOD_ID + ".scan_range"));
+        rangeField.setResponder(text -> scheduleEstimate());
+        
+        upField = new EditBox(font, leftPos + 75, topPos + 50, 50, 20, 
+        Component.translatable("gui." + CreativePrototyper.MOD_ID + ".up_field"));
+        upField.setValue(defaultRange);
+        upField.setFilter(this::isValidExtent);
+        upField.setHint(Component.translatable("gui." + CreativePrototyper.MOD_ID + ".up_field"));
+        upField.setResponder(text -> scheduleEstimate());
+        
+        downField = new EditBox(font, leftPos + 130, topPos + 50, 50, 20, 
+        Component.translatable("gui." + CreativePrototyper.MOD_ID + ".down_field"));
+        downField.setValue(defaultRange);
+        downField.setFilter(this::isValidExtent);
+        downField.setHint(Component.translatable("gui." + CreativePrototyper.MOD_ID + ".down_field"));
+        downField.setResponder(text -> scheduleEstimate());
         
         // Scan area button
         scanButton = Button.builder(Component.translatable("gui." + CreativePrototyper.MOD_ID + ".scan_area"), (button) -> {
             try {
-                int range = Integer.parseInt(rangeField.getValue());
-                // Clamp range between 8 and 64
-                range = Math.max(8, Math.min(64, range));
-                
                 // Send packet to server to scan the area and reset blocks placed flag
-                ModMessages.sendToServer(new ResetAndScanC2SPacket(tablePos, range));
+                ModMessages.sendToServer(new ResetAndScanC2SPacket(tablePos, buildRegion()));
                 
                 // Update button state immediately to show scanning in progress
                 button.setMessage(Component.translatable("gui." + CreativePrototyper.MOD_ID + ".scanning"));
                 button.active = false;
+                scanning = true;
                 statusText = Component.literal("Scanning area and building in creative dimension...");
                 
                 // Disable teleport button during scanning
@@ -68,25 +118,125 @@ public class CreativeTableScreen extends Screen {
                 // Invalid number, reset to default
                 rangeField.setValue("16");
             }
-        }).pos(leftPos + 20, topPos + 60).size(WIDTH - 40, 20).build();
+        }).pos(leftPos + 20, topPos + 74).size(WIDTH - 40, 20).build();
 
         // Teleport button (initially disabled, will enable after checking build status)
         teleportButton = Button.builder(Component.translatable("gui." + CreativePrototyper.MOD_ID + ".teleport"), (button) -> {
             // Send packet to server to teleport player
             ModMessages.sendToServer(new TeleportToDimensionC2SPacket(tablePos));
             onClose(); // Close the screen
-        }).pos(leftPos + 20, topPos + 90).size(WIDTH - 40, 20).build();
+        }).pos(leftPos + 20, topPos + 98).size(WIDTH - 40, 20).build();
         teleportButton.active = buildComplete;
 
         // Add widgets to the screen
+        addRenderableWidget(shapeButton);
         addRenderableWidget(rangeField);
+        addRenderableWidget(upField);
+        addRenderableWidget(downField);
         addRenderableWidget(scanButton);
         addRenderableWidget(teleportButton);
         
+        updateShapeFields();
+        
         // Check if this table already has a snapshot and build status
         checkForExistingSnapshot();
+        requestEstimate();
+    }
+    
+    @Override
+    public void tick() {
+        super.tick();
+        
+        // Wait for the player to stop typing before asking the server
+        if (estimateDelay > 0 && --estimateDelay == 0) {
+            requestEstimate();
+        }
+    }
+    
+    private void scheduleEstimate() {
+        estimateDelay = ESTIMATE_DELAY_TICKS;
+    }
+    
+    /**
+     * Ask the server what scanning the current region would cost
+     */
+    private void requestEstimate() {
+        // No answer comes back while the selection is incomplete
+        if (shapeButton.getValue() == ShapeMode.SELECTION) {
+            estimateText = Component.literal("");
+        }
+        try {
+            ModMessages.sendToServer(new EstimateScanC2SPacket(tablePos, buildRegion()));
+        } catch (NumberFormatException e) {
+            // Range field is empty, nothing to estimate yet
+            estimateText = Component.literal("");
+        }
     }
     
+    /**
+     * Called when the server answers an estimate request
+     */
+    public void setEstimate(long blocks, int blockEntities, long ticks, boolean allowed) {
+        if (allowed) {
+            estimateText = Component.translatable("gui." + CreativePrototyper.MOD_ID + ".estimate", 
+                blocks, blockEntities, formatDuration(ticks));
+            estimateColor = 0xAAAAAA;
+        } else {
+            estimateText = Component.translatable("gui." + CreativePrototyper.MOD_ID + ".estimate_too_large", blocks);
+            estimateColor = 0xFF5555;
+        }
+        
+        // The server would refuse the scan anyway
+        scanButton.active = allowed && !scanning;
+    }
+    
+    private static String formatDuration(long ticks) {
+        long seconds = (ticks + 19) / 20;
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        return String.format("%dm %02ds", seconds / 60, seconds % 60);
+    }
+    
+    /**
+     * Show only the extent fields the selected shape uses
+     */
+    private void updateShapeFields() {
+        ShapeMode mode = shapeButton.getValue();
+        boolean vertical = mode == ShapeMode.BOX || mode == ShapeMode.CYLINDER;
+        rangeField.setVisible(mode != ShapeMode.SELECTION);
+        upField.setVisible(vertical);
+        downField.setVisible(vertical);
+        
+        if (mode == ShapeMode.SELECTION && scanButton.active) {
+            statusText = Component.translatable("gui." + CreativePrototyper.MOD_ID + ".selection_hint");
+        }
+    }
+    
+    /**
+     * The region to scan for the current fields, or null to use the player's selection
+     */
+    private ScanRegion buildRegion() {
+        int maxRadius = CreativePrototyperConfig.COMMON.maxScanRadius.get();
+        // Clamp range between 8 and 64
+        int range = Math.max(8, Math.min(64, Integer.parseInt(rangeField.getValue())));
+        
+        switch (shapeButton.getValue()) {
+            case BOX:
+                return ScanRegion.box(range, parseExtent(upField, maxRadius), parseExtent(downField, maxRadius));
+            case CYLINDER:
+                return ScanRegion.cylinder(range, parseExtent(upField, maxRadius), parseExtent(downField, maxRadius));
+            case SELECTION:
+                return null;
+            default:
+                return ScanRegion.cube(range);
+        }
+    }
+    
+    private int parseExtent(EditBox field, int maxRadius) {
+        if (field.getValue().isEmpty()) return 0;
+        return Math.max(0, Math.min(maxRadius, Integer.parseInt(field.getValue())));
+    }    
     /**
      * Send a packet to the server to check if this table already has a snapshot
      */
@@ -104,6 +254,7 @@ public class CreativeTableScreen extends Screen {
      */
     public void setScanComplete(int blockCount) {
         buildComplete = true;
+        scanning = false;
         teleportButton.active = true;
         scanButton.setMessage(Component.translatable("gui." + CreativePrototyper.MOD_ID + ".scan_again"));
         scanButton.active = true;
@@ -164,13 +315,12 @@ public class CreativeTableScreen extends Screen {
         // Draw title
         graphics.drawCenteredString(font, title, leftPos + WIDTH / 2, topPos + 10, 0xFFFFFF);
         
-        // Draw range label
-        graphics.drawString(font, Component.translatable("gui." + CreativePrototyper.MOD_ID + ".scan_range"), 
-                           leftPos + 20, topPos + 35, 0xFFFFFF);
-        
         // Draw status text
         graphics.drawCenteredString(font, statusText, leftPos + WIDTH / 2, topPos + 145, 0xFFFFFF);
         
+        // Draw the cost of the current region
+        graphics.drawCenteredString(font, estimateText, leftPos + WIDTH / 2, topPos + 158, estimateColor);
+        
         // Draw progress bar if building is in progress
         if (!buildComplete && scanProgress > 0) {
             // Draw progress bar background
@@ -201,6 +351,16 @@ public class CreativeTableScreen extends Screen {
         }
     }
     
+    private boolean isValidExtent(String text) {
+        if (text.isEmpty()) return true;
+        try {
+            int val = Integer.parseInt(text);
+            return val >= 0 && val <= CreativePrototyperConfig.COMMON.maxScanRadius.get();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
     @Override
     public boolean isPauseScreen() {
         return false;
@@ -2,9 +2,11 @@ package com.craigsmods.creativeprototyper.networking;
 
 import com.craigsmods.creativeprototyper.CreativePrototyper;
 import com.craigsmods.creativeprototyper.networking.packet.CheckTableSnapshotC2SPacket;
+import com.craigsmods.creativeprototyper.networking.packet.EstimateScanC2SPacket;
 import com.craigsmods.creativeprototyper.networking.packet.ResetAndScanC2SPacket;
 import com.craigsmods.creativeprototyper.networking.packet.ScanAreaC2SPacket;
 import com.craigsmods.creativeprototyper.networking.packet.ScanCompleteS2CPacket;
+import com.craigsmods.creativeprototyper.networking.packet.ScanEstimateS2CPacket;
 import com.craigsmods.creativeprototyper.networking.packet.TableSnapshotStatusS2CPacket;
 import com.craigsmods.creativeprototyper.networking.packet.TeleportToDimensionC2SPacket;
 import net.minecraft.resources.ResourceLocation;
@@ -66,6 +68,16 @@ public class ModMessages {
         .encoder(ScanCompleteS2CPacket::toBytes)
         .consumerMainThread(ScanCompleteS2CPacket::handle)
         .add();
+        net.messageBuilder(EstimateScanC2SPacket.class, id(), NetworkDirection.PLAY_TO_SERVER)
+                .decoder(EstimateScanC2SPacket::new)
+                .encoder(EstimateScanC2SPacket::toBytes)
+                .consumerMainThread(EstimateScanC2SPacket::handle)
+                .add();
+        net.messageBuilder(ScanEstimateS2CPacket.class, id(), NetworkDirection.PLAY_TO_CLIENT)
+                .decoder(ScanEstimateS2CPacket::new)
+                .encoder(ScanEstimateS2CPacket::toBytes)
+                .consumerMainThread(ScanEstimateS2CPacket::handle)
+                .add();
     }
     
     public static <MSG> void sendToServer(MSG message) {
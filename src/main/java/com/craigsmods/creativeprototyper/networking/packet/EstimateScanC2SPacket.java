@@ -0,0 +1,78 @@
+package com.craigsmods.creativeprototyper.networking.packet;
+
+import com.craigsmods.creativeprototyper.block.CreativeTableBlockEntity;
+import com.craigsmods.creativeprototyper.config.CreativePrototyperConfig;
+import com.craigsmods.creativeprototyper.networking.ModMessages;
+import com.craigsmods.creativeprototyper.util.ScanEstimator;
+import com.craigsmods.creativeprototyper.util.ScanRegion;
+import com.craigsmods.creativeprototyper.util.ScanSelectionManager;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * Client to server packet asking what scanning a region would cost, sent while the table screen is edited
+ */
+public class EstimateScanC2SPacket {
+    private final BlockPos tablePos;
+    // Null when the player's selection should be used
+    @Nullable
+    private final ScanRegion region;
+    
+    public EstimateScanC2SPacket(BlockPos tablePos, @Nullable ScanRegion region) {
+        this.tablePos = tablePos;
+        this.region = region;
+    }
+    
+    public EstimateScanC2SPacket(FriendlyByteBuf buf) {
+        this.tablePos = buf.readBlockPos();
+        this.region = buf.readBoolean() ? ScanRegion.read(buf) : null;
+    }
+    
+    public void toBytes(FriendlyByteBuf buf) {
+        buf.writeBlockPos(tablePos);
+        buf.writeBoolean(region != null);
+        if (region != null) {
+            region.write(buf);
+        }
+    }
+    
+    public boolean handle(Supplier<NetworkEvent.Context> supplier) {
+        NetworkEvent.Context context = supplier.get();
+        context.enqueueWork(() -> {
+            ServerPlayer player = context.getSender();
+            if (player == null) return;
+            
+            // Only a player at the table may ask, and not faster than the counts can be afforded
+            BlockEntity be = player.level().getBlockEntity(tablePos);
+            if (!(be instanceof CreativeTableBlockEntity tableEntity) || !tableEntity.isWithinReach(player)) return;
+            if (!ScanEstimator.tryStartEstimate(player)) return;
+            
+            // An incomplete selection has nothing to estimate, the screen already says so
+            ScanRegion scanRegion = region != null ? region : ScanSelectionManager.getRegion(player, tablePos);
+            if (scanRegion == null) return;
+            
+            // Oversized regions are refused before any chunk is looked at
+            if (!scanRegion.fitsWithin(CreativePrototyperConfig.COMMON.maxScanRadius.get())) {
+                ModMessages.sendToPlayer(new ScanEstimateS2CPacket(0L, 0, 0L, false), player);
+                return;
+            }
+            
+            ScanEstimator.Estimate estimate = ScanEstimator.estimate(player.serverLevel(), tablePos, scanRegion);
+            int maxBlocks = CreativePrototyperConfig.COMMON.maxEstimatedBlocks.get();
+            boolean allowed = maxBlocks == 0 || estimate.blocks <= maxBlocks;
+            
+            ModMessages.sendToPlayer(
+                new ScanEstimateS2CPacket(estimate.blocks, estimate.blockEntities, estimate.ticks, allowed), player);
+        });
+        
+        return true;
+    }
+}
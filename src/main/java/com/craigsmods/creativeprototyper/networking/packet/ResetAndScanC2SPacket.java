@@ -3,6 +3,8 @@ package com.craigsmods.creativeprototyper.networking.packet;
 import com.craigsmods.creativeprototyper.block.CreativeTableBlockEntity;
 import com.craigsmods.creativeprototyper.registry.ModDimensions;
 import com.craigsmods.creativeprototyper.util.AsyncAreaScanner;
+import com.craigsmods.creativeprototyper.util.ScanRegion;
+import com.craigsmods.creativeprototyper.util.ScanSelectionManager;
 
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.FriendlyByteBuf;
@@ -13,23 +15,34 @@ import net.minecraftforge.network.NetworkEvent;
 
 import java.util.function.Supplier;
 
+import javax.annotation.Nullable;
+
 public class ResetAndScanC2SPacket {
     private final BlockPos tablePos;
-    private final int scanRadius;
+    // Null when the player's selection should be used
+    @Nullable
+    private final ScanRegion region;
     
     public ResetAndScanC2SPacket(BlockPos tablePos, int scanRadius) {
+        this(tablePos, ScanRegion.cube(scanRadius));
+    }
+    
+    public ResetAndScanC2SPacket(BlockPos tablePos, @Nullable ScanRegion region) {
         this.tablePos = tablePos;
-        this.scanRadius = scanRadius;
+        this.region = region;
     }
     
     public ResetAndScanC2SPacket(FriendlyByteBuf buf) {
         this.tablePos = buf.readBlockPos();
-        this.scanRadius = buf.readInt();
+        this.region = buf.readBoolean() ? ScanRegion.read(buf) : null;
     }
     
     public void toBytes(FriendlyByteBuf buf) {
         buf.writeBlockPos(tablePos);
-        buf.writeInt(scanRadius);
+        buf.writeBoolean(region != null);
+        if (region != null) {
+            region.write(buf);
+        }
     }
     
     public boolean handle(Supplier<NetworkEvent.Context> supplier) {
@@ -51,6 +64,12 @@ public class ResetAndScanC2SPacket {
                 System.out.println("Error: Could not find Creative Table block entity at " + tablePos);
                 return;
             }
+            if (!tableEntity.isWithinReach(player)) {
+                return;
+            }
+            
+            ScanRegion scanRegion = ScanSelectionManager.resolve(player, tablePos, region);
+            if (scanRegion == null) return;
             
             // Reset build status
             tableEntity.setBuildingComplete(false);
@@ -58,8 +77,8 @@ public class ResetAndScanC2SPacket {
             tableEntity.setTotalScanBlocks(0);
             System.out.println("Reset build status for table at " + tablePos);
             
-            // Use AsyncAreaScanner to perform the new scan
-            AsyncAreaScanner.startScan(player, tablePos, scanRadius, tableEntity);
+            // Use AsyncAreaScanner to perform the new scan, replacing the whole build
+            AsyncAreaScanner.startScan(player, tablePos, scanRegion, tableEntity, true);
         });
         
         return true;
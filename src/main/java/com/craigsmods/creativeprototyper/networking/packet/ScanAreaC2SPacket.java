@@ -5,6 +5,8 @@ import com.craigsmods.creativeprototyper.block.CreativeTableBlockEntity;
 import com.craigsmods.creativeprototyper.registry.ModDimensions;
 import com.craigsmods.creativeprototyper.util.AreaSnapshot;
 import com.craigsmods.creativeprototyper.util.AsyncAreaScanner;
+import com.craigsmods.creativeprototyper.util.ScanRegion;
+import com.craigsmods.creativeprototyper.util.ScanSelectionManager;
 
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.FriendlyByteBuf;
@@ -15,23 +17,34 @@ import net.minecraftforge.network.NetworkEvent;
 
 import java.util.function.Supplier;
 
+import javax.annotation.Nullable;
+
 public class ScanAreaC2SPacket {
     private final BlockPos tablePos;
-    private final int scanRadius;
+    // Null when the player's selection should be used
+    @Nullable
+    private final ScanRegion region;
     
     public ScanAreaC2SPacket(BlockPos tablePos, int scanRadius) {
+        this(tablePos, ScanRegion.cube(scanRadius));
+    }
+    
+    public ScanAreaC2SPacket(BlockPos tablePos, @Nullable ScanRegion region) {
         this.tablePos = tablePos;
-        this.scanRadius = scanRadius;
+        this.region = region;
     }
     
     public ScanAreaC2SPacket(FriendlyByteBuf buf) {
         this.tablePos = buf.readBlockPos();
-        this.scanRadius = buf.readInt();
+        this.region = buf.readBoolean() ? ScanRegion.read(buf) : null;
     }
     
     public void toBytes(FriendlyByteBuf buf) {
         buf.writeBlockPos(tablePos);
-        buf.writeInt(scanRadius);
+        buf.writeBoolean(region != null);
+        if (region != null) {
+            region.write(buf);
+        }
     }
     
 public boolean handle(Supplier<NetworkEvent.Context> supplier) {
@@ -49,13 +62,15 @@ public boolean handle(Supplier<NetworkEvent.Context> supplier) {
         
         // Get the block entity
         BlockEntity be = player.level().getBlockEntity(tablePos);
-        if (!(be instanceof CreativeTableBlockEntity tableEntity)) {
-
+        if (!(be instanceof CreativeTableBlockEntity tableEntity) || !tableEntity.isWithinReach(player)) {
             return;
         }
         
+        ScanRegion scanRegion = ScanSelectionManager.resolve(player, tablePos, region);
+        if (scanRegion == null) return;
+        
         // Use AsyncAreaScanner instead of direct scanning
-        AsyncAreaScanner.startScan(player, tablePos, scanRadius, tableEntity);
+        AsyncAreaScanner.startScan(player, tablePos, scanRegion, tableEntity);
     });
     
     return true;
@@ -0,0 +1,57 @@
+package com.craigsmods.creativeprototyper.networking.packet;
+
+import com.craigsmods.creativeprototyper.gui.CreativeTableScreen;
+import net.minecraft.client.Minecraft;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Server to client packet with the estimated cost of a scan
+ */
+public class ScanEstimateS2CPacket {
+    private final long blocks;
+    private final int blockEntities;
+    private final long ticks;
+    // Whether the server would accept the scan
+    private final boolean allowed;
+    
+    public ScanEstimateS2CPacket(long blocks, int blockEntities, long ticks, boolean allowed) {
+        this.blocks = blocks;
+        this.blockEntities = blockEntities;
+        this.ticks = ticks;
+        this.allowed = allowed;
+    }
+    
+    public ScanEstimateS2CPacket(FriendlyByteBuf buf) {
+        this.blocks = buf.readVarLong();
+        this.blockEntities = buf.readVarInt();
+        this.ticks = buf.readVarLong();
+        this.allowed = buf.readBoolean();
+    }
+    
+    public void toBytes(FriendlyByteBuf buf) {
+        buf.writeVarLong(blocks);
+        buf.writeVarInt(blockEntities);
+        buf.writeVarLong(ticks);
+        buf.writeBoolean(allowed);
+    }
+    
+    public boolean handle(Supplier<NetworkEvent.Context> supplier) {
+        NetworkEvent.Context context = supplier.get();
+        context.enqueueWork(() -> {
+            // Make sure we're on the client side
+            DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> {
+                // Update the GUI if it's open
+                if (Minecraft.getInstance().screen instanceof CreativeTableScreen screen) {
+                    screen.setEstimate(blocks, blockEntities, ticks, allowed);
+                }
+            });
+        });
+        
+        return true;
+    }
+}
@@ -4,6 +4,7 @@ import com.craigsmods.creativeprototyper.block.CreativeTableBlock;
 import com.craigsmods.creativeprototyper.block.CreativeTableBlockEntity;
 import com.craigsmods.creativeprototyper.dimension.CreativeDimensionManager;
 import com.craigsmods.creativeprototyper.registry.ModDimensions;
+import com.craigsmods.creativeprototyper.util.AsyncAreaScanner;
 import com.craigsmods.creativeprototyper.util.PlayerDataManager;
 import com.mojang.logging.LogUtils;
 
@@ -17,7 +18,6 @@ import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraftforge.network.NetworkEvent;
 
-import java.util.UUID;
 import java.util.function.Supplier;
 
 public class TeleportToDimensionC2SPacket {
@@ -86,7 +86,7 @@ public class TeleportToDimensionC2SPacket {
             }
             
 
-            BlockPos placementPos = calculatePlacementPosition(player.getUUID(), tablePos);
+            BlockPos placementPos = AsyncAreaScanner.calculatePlacementPosition(player.getUUID(), tablePos);
             CreativeDimensionManager.setTablePlacementPosition(tableKey, placementPos);        
             PlayerDataManager.switchToCreativeDimension(player, tablePos);
             
@@ -101,13 +101,4 @@ public class TeleportToDimensionC2SPacket {
         
         return true;
     }
-    
-    // Generate a consistent placement position for each table
-    private BlockPos calculatePlacementPosition(UUID playerId, BlockPos tablePos) {
-        // Simple hash-based approach
-        int hash = (playerId.toString() + tablePos.toString()).hashCode();
-        int x = ((hash % 100) - 50) * 1000;
-        int z = ((hash / 100 % 100) - 50) * 1000;
-        return new BlockPos(x, 70, z);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,332 @@
+package com.craigsmods.creativeprototyper.util;
+
+import com.craigsmods.creativeprototyper.block.CreativeTableBlockEntity;
+import com.craigsmods.creativeprototyper.config.CreativePrototyperConfig;
+import com.mojang.logging.LogUtils;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.core.SectionPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.LightLayer;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.levelgen.Heightmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Point-in-time copy of the chunk sections around a table.
+ * Captured on the server thread so the scan threads never touch the live level.
+ */
+public class AreaCapture {
+    private static final org.slf4j.Logger LOGGER = LogUtils.getLogger();
+
+    private final BlockPos center;
+    private final ScanRegion region;
+    private final long gameTime;
+    private final List<SectionSnapshot> sections;
+    // Same sections by SectionPos.asLong, for neighbor lookups
+    private final Long2ObjectOpenHashMap<SectionSnapshot> sectionsByPos;
+    private final List<BlockEntitySnapshot> blockEntities;
+
+    private AreaCapture(BlockPos center, ScanRegion region, long gameTime, List<SectionSnapshot> sections,
+                        List<BlockEntitySnapshot> blockEntities) {
+        this.center = center;
+        this.region = region;
+        this.gameTime = gameTime;
+        this.sections = Collections.unmodifiableList(sections);
+        this.blockEntities = Collections.unmodifiableList(blockEntities);
+        this.sectionsByPos = new Long2ObjectOpenHashMap<>(sections.size());
+        for (SectionSnapshot section : sections) {
+            sectionsByPos.put(section.pos.asLong(), section);
+        }
+    }
+
+    /**
+     * Copy the block states of every loaded section that overlaps the scan region,
+     * and save the block entities in the region straight from each chunk's block entity map.
+     * Sections that are only air are recorded without a copy. When sections may be cloned, the ones
+     * entirely inside the region also keep their biomes, and with light their block and sky light.
+     * Throws if the region holds more block entities than maxBlockEntities allows.
+     * Must be called on the server thread.
+     */
+    public static AreaCapture capture(ServerLevel level, BlockPos center, ScanRegion region, 
+                                      boolean cloneSections, boolean withLight) {
+        return capture(level, center, region, null, cloneSections, withLight);
+    }
+
+    /**
+     * Same as above for only some sections, given as section keys, to pick up an interrupted scan.
+     * No block entities are saved, those were queued with the first capture.
+     */
+    public static AreaCapture capture(ServerLevel level, BlockPos center, ScanRegion region, @Nullable LongSet onlySections,
+                                      boolean cloneSections, boolean withLight) {
+        long startTime = System.nanoTime();
+        List<SectionSnapshot> sections = new ArrayList<>();
+        List<BlockEntitySnapshot> blockEntities = new ArrayList<>();
+        List<LevelChunk> chunks = new ArrayList<>();
+
+        int minSectionX = SectionPos.blockToSectionCoord(center.getX() + region.getMinX());
+        int maxSectionX = SectionPos.blockToSectionCoord(center.getX() + region.getMaxX());
+        int minSectionZ = SectionPos.blockToSectionCoord(center.getZ() + region.getMinZ());
+        int maxSectionZ = SectionPos.blockToSectionCoord(center.getZ() + region.getMaxZ());
+
+        // Clamp to the build height of the level
+        int minSectionY = Math.max(level.getMinSection(), SectionPos.blockToSectionCoord(center.getY() + region.getMinY()));
+        int maxSectionY = Math.min(level.getMaxSection() - 1, SectionPos.blockToSectionCoord(center.getY() + region.getMaxY()));
+
+        for (int sectionX = minSectionX; sectionX <= maxSectionX; sectionX++) {
+            for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; sectionZ++) {
+                // Chunks in the corners of the bounding box can lie outside a cylinder
+                int fromX = SectionPos.sectionToBlockCoord(sectionX) - center.getX();
+                int fromZ = SectionPos.sectionToBlockCoord(sectionZ) - center.getZ();
+                if (!region.intersectsColumns(fromX, fromZ, fromX + 15, fromZ + 15)) continue;
+
+                // Unloaded chunks are skipped, same as the old per-block isLoaded check
+                LevelChunk chunk = level.getChunkSource().getChunkNow(sectionX, sectionZ);
+                if (chunk == null) continue;
+
+                // Everything at or above a column's top is air, so the scan can stop there
+                int[] columnTops = captureColumnTops(chunk);
+
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    if (onlySections != null && !onlySections.contains(SectionPos.asLong(sectionX, sectionY, sectionZ))) continue;
+                    LevelChunkSection section = chunk.getSection(chunk.getSectionIndexFromSectionY(sectionY));
+
+                    // Copying the container is a palette clone plus one array copy
+                    boolean empty = section.hasOnlyAir();
+                    int fromY = SectionPos.sectionToBlockCoord(sectionY) - center.getY();
+                    boolean mayClone = cloneSections && !empty 
+                        && region.containsBox(fromX, fromY, fromZ, fromX + 15, fromY + 15, fromZ + 15);
+                    SectionPos sectionPos = SectionPos.of(sectionX, sectionY, sectionZ);
+                    SectionSnapshot snapshot = new SectionSnapshot(
+                        sectionPos,
+                        empty ? null : section.getStates().copy(),
+                        mayClone && section.getBiomes() instanceof PalettedContainer<Holder<Biome>> biomes ? biomes.copy() : null,
+                        columnTops
+                    );
+                    if (withLight && mayClone) {
+                        captureLight(level, sectionPos, snapshot);
+                    }
+                    sections.add(snapshot);
+                }
+
+                chunks.add(chunk);
+            }
+        }
+
+        // Saved in the same tick as the sections, so blocks and their data always match.
+        // That tick grows with their number, so an area over the limit is refused before any are saved.
+        if (onlySections == null) {
+            int maxBlockEntities = CreativePrototyperConfig.COMMON.maxBlockEntities.get();
+            int count = countBlockEntities(chunks, center, region);
+            if (maxBlockEntities > 0 && count > maxBlockEntities) {
+                throw new IllegalStateException(
+                    "Scan area holds " + count + " block entities, more than the maximum of " + maxBlockEntities);
+            }
+            for (LevelChunk chunk : chunks) {
+                captureBlockEntities(chunk, center, region, blockEntities);
+            }
+        }
+
+        LOGGER.debug("Captured {} sections and {} block entities around {} in {} us",
+            sections.size(), blockEntities.size(), center, (System.nanoTime() - startTime) / 1000);
+
+        return new AreaCapture(center.immutable(), region, level.getGameTime(), sections, blockEntities);
+    }
+
+    /**
+     * Copy the light the level has stored for a section
+     */
+    private static void captureLight(ServerLevel level, SectionPos sectionPos, SectionSnapshot snapshot) {
+        boolean hasSkyLight = level.dimensionType().hasSkyLight();
+        DataLayer blockLight = level.getLightEngine().getLayerListener(LightLayer.BLOCK).getDataLayerData(sectionPos);
+        DataLayer skyLight = hasSkyLight
+            ? level.getLightEngine().getLayerListener(LightLayer.SKY).getDataLayerData(sectionPos) : null;
+
+        // Missing sky light depends on the sections above, so such a section is relit instead of guessing
+        if (hasSkyLight && skyLight == null) {
+            return;
+        }
+
+        // Sections without stored block light are dark
+        snapshot.blockLight = blockLight != null ? blockLight.copy() : new DataLayer();
+        snapshot.skyLight = skyLight != null ? skyLight.copy() : null;
+    }
+
+    /**
+     * Number of block entities of some chunks that lie inside the region
+     */
+    private static int countBlockEntities(List<LevelChunk> chunks, BlockPos center, ScanRegion region) {
+        int count = 0;
+        for (LevelChunk chunk : chunks) {
+            for (BlockPos pos : chunk.getBlockEntities().keySet()) {
+                if (region.contains(pos.getX() - center.getX(), pos.getY() - center.getY(), pos.getZ() - center.getZ())) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Save one chunk's block entities that lie inside the region
+     */
+    private static void captureBlockEntities(LevelChunk chunk, BlockPos center, ScanRegion region,
+                                             List<BlockEntitySnapshot> blockEntities) {
+        for (BlockEntity blockEntity : chunk.getBlockEntities().values()) {
+            BlockPos pos = blockEntity.getBlockPos();
+            int dx = pos.getX() - center.getX();
+            int dy = pos.getY() - center.getY();
+            int dz = pos.getZ() - center.getZ();
+            if (!region.contains(dx, dy, dz)) continue;
+
+            // Tables are never copied, a table in the copy would scan into itself
+            if (blockEntity instanceof CreativeTableBlockEntity) continue;
+
+            BlockState state = blockEntity.getBlockState();
+            if (!blockEntity.getType().isValid(state)) continue;
+
+            try {
+                blockEntities.add(new BlockEntitySnapshot(
+                    BlockPos.asLong(dx, dy, dz), Block.getId(state), encodeBlockEntity(blockEntity.saveWithoutMetadata())));
+            } catch (Exception e) {
+                LOGGER.error("Error saving block entity at {}: {}", pos, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Serialize saved block entity data. Done once when it is saved, so its size is known
+     * without writing it again, and it takes less memory than the tag while it waits for placement.
+     */
+    static byte[] encodeBlockEntity(CompoundTag tag) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NbtIo.write(tag, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read back block entity data serialized by encodeBlockEntity
+     */
+    static CompoundTag decodeBlockEntity(byte[] data) throws IOException {
+        return NbtIo.read(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    /**
+     * First air block above the highest non-air block of each column, indexed z * 16 + x
+     */
+    private static int[] captureColumnTops(LevelChunk chunk) {
+        Heightmap heightmap = chunk.getOrCreateHeightmapUnprimed(Heightmap.Types.WORLD_SURFACE);
+        int[] columnTops = new int[16 * 16];
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                columnTops[z * 16 + x] = heightmap.getFirstAvailable(x, z);
+            }
+        }
+        return columnTops;
+    }
+
+    public BlockPos getCenter() {
+        return center;
+    }
+
+    public ScanRegion getRegion() {
+        return region;
+    }
+
+    public long getGameTime() {
+        return gameTime;
+    }
+
+    public List<SectionSnapshot> getSections() {
+        return sections;
+    }
+
+    /**
+     * Saved block entities of the region, positions relative to the center
+     */
+    public List<BlockEntitySnapshot> getBlockEntities() {
+        return blockEntities;
+    }
+
+    /**
+     * The captured section at a packed SectionPos, or null if it is outside the capture
+     */
+    @Nullable
+    public SectionSnapshot getSection(long sectionKey) {
+        return sectionsByPos.get(sectionKey);
+    }
+
+    /**
+     * Private copy of one chunk section's block states and biomes
+     */
+    public static class SectionSnapshot {
+        final SectionPos pos;
+        // Null when the section is only air
+        @Nullable
+        final PalettedContainer<BlockState> states;
+        // Only kept for sections entirely inside the region of a build that clones sections
+        @Nullable
+        final PalettedContainer<Holder<Biome>> biomes;
+        // Shared by all sections of the same chunk
+        final int[] columnTops;
+        // Stored light, only captured when asked for and for the same sections as the biomes. Null block light means the section has to be relit
+        @Nullable
+        DataLayer blockLight;
+        @Nullable
+        DataLayer skyLight;
+
+        SectionSnapshot(SectionPos pos, @Nullable PalettedContainer<BlockState> states,
+                        @Nullable PalettedContainer<Holder<Biome>> biomes, int[] columnTops) {
+            this.pos = pos;
+            this.states = states;
+            this.biomes = biomes;
+            this.columnTops = columnTops;
+        }
+
+        public boolean isEmpty() {
+            return states == null;
+        }
+
+        public SectionPos getPos() {
+            return pos;
+        }
+    }
+
+    /**
+     * One block entity's state and saved data, serialized by encodeBlockEntity
+     */
+    public static class BlockEntitySnapshot {
+        final long relativePos;
+        final int stateId;
+        final byte[] data;
+
+        BlockEntitySnapshot(long relativePos, int stateId, byte[] data) {
+            this.relativePos = relativePos;
+            this.stateId = stateId;
+            this.data = data;
+        }
+    }
+}
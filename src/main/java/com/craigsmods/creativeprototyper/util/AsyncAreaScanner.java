@@ -9,58 +9,130 @@ import com.craigsmods.creativeprototyper.networking.packet.ScanCompleteS2CPacket
 import com.craigsmods.creativeprototyper.registry.ModDimensions;
 import com.mojang.logging.LogUtils;
 
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.BlockStateProperties;
+import net.minecraft.world.level.block.state.properties.DoubleBlockHalf;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.server.ServerLifecycleHooks;
 import org.apache.logging.log4j.Logger;
 
+import javax.annotation.Nullable;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Optimized area scanner that scans blocks and builds them simultaneously
  */
 public class AsyncAreaScanner {
     private static final org.slf4j.Logger LOGGER = LogUtils.getLogger();
-    private static final ExecutorService SCAN_EXECUTOR = Executors.newSingleThreadExecutor();
+    
+    // Blocks handed to the section writer between clock checks
+    private static final int BULK_SLICE_SIZE = 4096;
+    
+    // Scanned sections are only moved into the placement queue while it holds fewer blocks than this,
+    // so a scan that outruns placement waits on its bounded section queue instead of filling memory
+    private static final int MAX_QUEUED_BLOCKS = 16 * 4096;
+    // Same for sections copied whole, which are never spilled
+    private static final int MAX_QUEUED_CLONES = 16;
     
     // Map of active scans
     private static final Map<UUID, ScanData> activeScanMap = new ConcurrentHashMap<>();
     
+    // Block entity bytes that may still be copied this tick, shared by all scans
+    private static long blockEntityBytesLeft = 0L;
+    
     // Register tick listener (call this in your mod setup)
     public static void init() {
         MinecraftForge.EVENT_BUS.register(AsyncAreaScanner.class);
     }
     
     /**
-     * Start an optimized scan that builds as it scans
+     * Start an optimized scan of the cube around a table
+     */
+    @Nullable
+    public static ScanHandle startScan(ServerPlayer player, BlockPos tablePos, int radius, 
+                               CreativeTableBlockEntity tableEntity) {
+        return startScan(player, tablePos, ScanRegion.cube(radius), tableEntity);
+    }
+    
+    /**
+     * Start an optimized scan that builds as it scans.
+     * Returns a handle to control and observe the scan, or null if it could not start.
      */
-    public static void startScan(ServerPlayer player, BlockPos tablePos, int radius, 
+    @Nullable
+    public static ScanHandle startScan(ServerPlayer player, BlockPos tablePos, ScanRegion region, 
                                CreativeTableBlockEntity tableEntity) {
+        return startScan(player, tablePos, region, tableEntity, false);
+    }
+    
+    /**
+     * Same as above. With reset, the previous build is always replaced in full, even where an incremental
+     * rescan would keep the sections whose source didn't change.
+     */
+    @Nullable
+    public static ScanHandle startScan(ServerPlayer player, BlockPos tablePos, ScanRegion region, 
+                               CreativeTableBlockEntity tableEntity, boolean reset) {
         UUID playerId = player.getUUID();
         
+        // The screen limits the size, but the server has the final say
+        int maxRadius = CreativePrototyperConfig.COMMON.maxScanRadius.get();
+        if (!region.fitsWithin(maxRadius)) {
+            player.displayClientMessage(
+                Component.literal("Scan area reaches further than the maximum of " + maxRadius + " blocks"), false);
+            return null;
+        }
+        
+        // Refuse scans that would take too long to build
+        if (exceedsLimits(player, player.serverLevel(), tablePos, region)) {
+            return null;
+        }
+        
         // Cancel any existing scan for this player
-        if (activeScanMap.containsKey(playerId)) {
+        ScanData existingScan = activeScanMap.get(playerId);
+        if (existingScan != null) {
             player.displayClientMessage(
                 Component.literal("Cancelled previous scan"), false);
-            activeScanMap.remove(playerId);
+            existingScan.handle.cancel();
         }
         
         tableEntity.setScanning(true);
@@ -73,7 +145,7 @@ public class AsyncAreaScanner {
         if (creativeLevel == null) {
             player.displayClientMessage(
                 Component.literal("Error: Creative dimension not found!"), false);
-            return;
+            return null;
         }
         
         // Store the current dimension before switching
@@ -91,109 +163,313 @@ public class AsyncAreaScanner {
         CreativeDimensionManager.setTablePlacementPosition(tableKey, placementPos);
         
         // Create scan data
+        ServerLevel sourceLevel = (ServerLevel) player.level();
         ScanData scanData = new ScanData(
-            player,
-            (ServerLevel) player.level(),
+            playerId,
+            sourceLevel,
             tablePos,
-            radius,
+            region,
             tableEntity,
             creativeLevel,
             placementPos,
             sourceDim.location().toString()
         );
         
+        // Hashes are only kept for completed builds, so an interrupted scan always leads to a full rescan
+        CreativeDimensionManager.SectionHashes previousHashes = CreativeDimensionManager.removeSectionHashes(tableKey);
+        Supplier<CompletableFuture<Void>> preparePlot;
+        if (!reset && CreativePrototyperConfig.COMMON.incrementalRescan.get() && previousHashes != null
+                && previousHashes.region.equals(region) && previousHashes.placementPos.equals(placementPos)) {
+            scanData.previousHashes = previousHashes.hashes;
+            LOGGER.info("Rescanning table at {} incrementally against {} known sections", 
+                       tablePos, previousHashes.hashes.size());
+            preparePlot = () -> CompletableFuture.completedFuture(null);
+        } else if (CreativePrototyperConfig.COMMON.clearBeforeRebuild.get()) {
+            // Air is never placed, so a full rescan has to start from an empty plot
+            ScanRegion clearArea = previousHashes != null && previousHashes.placementPos.equals(placementPos)
+                ? ScanRegion.union(region, previousHashes.region) : region;
+            // The plot is only ready once it is relit, so the capture never races the clear's light updates
+            preparePlot = () -> ChunkTicketLoader.withLoadedArea(creativeLevel, placementPos, clearArea, 
+                () -> PlotClearer.clearRegion(creativeLevel, placementPos, clearArea));
+        } else {
+            preparePlot = () -> CompletableFuture.completedFuture(null);
+        }
+        
         // Store scan data
         activeScanMap.put(playerId, scanData);
-        tableEntity.startScanning(radius);
+        tableEntity.startScanning(region.getHorizontalExtent());
         
-        // Start asynchronous scan for non-tile entity blocks
-        CompletableFuture.runAsync(() -> {
-            try {
-                scanAndBuildNonTileEntityBlocks(scanData);
-            } catch (Exception e) {
-                player.displayClientMessage(
-                    Component.literal("Error during scan: " + e.getMessage()), false);
-                activeScanMap.remove(playerId);
-            }
-        }, SCAN_EXECUTOR);
+        // Load the source footprint without blocking the server thread, then copy it on the server thread.
+        // The scan threads only ever see this snapshot. The source stays loaded while the plot is cleared.
+        ChunkTicketLoader.withLoadedArea(sourceLevel, tablePos, region, () -> {
+                // The first estimate left out unloaded chunks, so check again before the old build is cleared
+                if (scanData.handle.isCancelled() 
+                        || exceedsLimits(scanData.getPlayer(), sourceLevel, tablePos, region)) {
+                    scanData.handle.cancel();
+                    return CompletableFuture.completedFuture(null);
+                }
+                
+                // Completes on the server thread, see ChunkTicketLoader
+                return preparePlot.get().thenRun(() -> {
+                    if (!scanData.handle.isCancelled()) {
+                        scanData.capture = AreaCapture.capture(sourceLevel, tablePos, region, 
+                            scanData.cloneSections, scanData.copyLight);
+                        queueBlockEntities(scanData, scanData.capture);
+                    }
+                });
+            })
+            // Start asynchronous scan for non-tile entity blocks
+            .thenRun(() -> scanAndBuildNonTileEntityBlocks(scanData))
+            .exceptionally(e -> {
+                LOGGER.error("Error preparing scan of table at {}: {}", tablePos, e.getMessage());
+                scanData.level.getServer().execute(() -> failScan(scanData, "Error preparing scan: ", e));
+                return null;
+            });
         
-
+        return scanData.handle;
+    }
+    
+    /**
+     * Whether a region holds more blocks or block entities than the configured maximum, telling the player if so.
+     * Only loaded chunks are counted. Must be called on the server thread.
+     */
+    private static boolean exceedsLimits(@Nullable ServerPlayer player, ServerLevel level, 
+                                         BlockPos tablePos, ScanRegion region) {
+        int maxBlocks = CreativePrototyperConfig.COMMON.maxEstimatedBlocks.get();
+        int maxBlockEntities = CreativePrototyperConfig.COMMON.maxBlockEntities.get();
+        if (maxBlocks <= 0 && maxBlockEntities <= 0) {
+            return false;
+        }
+        
+        ScanEstimator.Estimate estimate = ScanEstimator.estimate(level, tablePos, region);
+        String refusal = null;
+        if (maxBlocks > 0 && estimate.blocks > maxBlocks) {
+            refusal = "Scan area holds about " + estimate.blocks + " blocks, more than the maximum of " + maxBlocks;
+        } else if (maxBlockEntities > 0 && estimate.blockEntities > maxBlockEntities) {
+            refusal = "Scan area holds " + estimate.blockEntities + " block entities, more than the maximum of " + maxBlockEntities;
+        }
+        if (refusal != null && player != null) {
+            player.displayClientMessage(Component.literal(refusal), false);
+        }
+        return refusal != null;
+    }
+    
+    /**
+     * The scan a player is running, or null if they have none
+     */
+    @Nullable
+    public static ScanHandle getScan(UUID playerId) {
+        ScanData scanData = activeScanMap.get(playerId);
+        return scanData != null ? scanData.handle : null;
+    }
+    
+    /**
+     * Every running scan
+     */
+    public static List<ScanHandle> getScans() {
+        List<ScanHandle> handles = new ArrayList<>();
+        for (ScanData scanData : activeScanMap.values()) {
+            handles.add(scanData.handle);
+        }
+        return handles;
+    }
+    
+    /**
+     * Drop a scan from the active scans. Called by ScanHandle.cancel from any thread.
+     */
+    static void cancelScan(ScanData scanData) {
+        if (activeScanMap.remove(scanData.playerId, scanData)) {
+            LOGGER.info("Cancelled scan of table at {} with {} of {} blocks placed", 
+                       scanData.tablePos, scanData.placedBlocks.get(), scanData.totalBlocks.get());
+        }
+        
+        // Table state and the queues are only touched on the server thread
+        scanData.level.getServer().execute(() -> {
+            scanData.release();
+            CreativeTableBlockEntity tableEntity = scanData.getTableEntity();
+            if (tableEntity != null && !activeScanMap.containsKey(scanData.playerId)) {
+                tableEntity.setScanning(false);
+            }
+        });
+    }
+    
+    /**
+     * Stop a scan that can't continue and tell its player, on the server thread
+     */
+    private static void failScan(ScanData scanData, String message, Throwable error) {
+        ServerPlayer player = scanData.getPlayer();
+        if (player != null) {
+            player.displayClientMessage(Component.literal(message + error.getMessage()), false);
+        }
+        activeScanMap.remove(scanData.playerId, scanData);
+        scanData.release();
+        CreativeTableBlockEntity tableEntity = scanData.getTableEntity();
+        if (tableEntity != null && !activeScanMap.containsKey(scanData.playerId)) {
+            tableEntity.setScanning(false);
+        }
+        scanData.handle.fail(error);
     }
     
     /**
      * Generate a consistent placement position for each table
      */
-    private static BlockPos calculatePlacementPosition(UUID playerId, BlockPos tablePos) {
+    public static BlockPos calculatePlacementPosition(UUID playerId, BlockPos tablePos) {
         // Simple hash-based approach
         int hash = (playerId.toString() + tablePos.toString()).hashCode();
         int x = ((hash % 100) - 50) * 1000;
         int z = ((hash / 100 % 100) - 50) * 1000;
+        
+        if (CreativePrototyperConfig.COMMON.alignedPlots.get()) {
+            // Same position within its section as the table, so every source section maps onto one target section
+            return new BlockPos((x & ~15) | (tablePos.getX() & 15), 64 | (tablePos.getY() & 15), (z & ~15) | (tablePos.getZ() & 15));
+        }
         return new BlockPos(x, 70, z);
     }
     
     /**
-     * Scan non-tile entity blocks and build them immediately
+     * Whether a build's placement lines up with the section grid of its source
+     */
+    private static boolean isSectionAligned(BlockPos tablePos, BlockPos placementPos) {
+        return ((placementPos.getX() - tablePos.getX()) & 15) == 0
+            && ((placementPos.getY() - tablePos.getY()) & 15) == 0
+            && ((placementPos.getZ() - tablePos.getZ()) & 15) == 0;
+    }
+    
+    /**
+     * Start scanning non-tile entity blocks, which are built as they come in.
+     * Called on the server thread, the sections are scanned on the scan pool.
      */
     private static void scanAndBuildNonTileEntityBlocks(ScanData scanData) {
-        ServerLevel sourceLevel = scanData.level;
-        BlockPos sourceCenter = scanData.tablePos;
-        int radius = scanData.radius;
-        ServerLevel targetLevel = scanData.creativeLevel;
-        BlockPos targetCenter = scanData.placementPos;
-        
-        // Process blocks in an orderly fashion
-        List<BlockPos> allPositions = new ArrayList<>();
-        
-        // First, collect all positions that need to be scanned
-        for (int x = -radius; x <= radius; x++) {
-            for (int y = -radius; y <= radius; y++) {
-                for (int z = -radius; z <= radius; z++) {
-                    BlockPos relativePos = new BlockPos(x, y, z);
-                    BlockPos sourcePos = sourceCenter.offset(x, y, z);
-                    
-                    if (!sourceLevel.isLoaded(sourcePos)) continue;
-                    
-                    BlockState state = sourceLevel.getBlockState(sourcePos);
-                    if (state.isAir()) continue;
-                    
-                    // Add all non-air blocks to the list
-                    allPositions.add(relativePos);
-                }
-            }
+        // Cancelled or replaced before the area finished loading
+        if (scanData.capture == null) {
+            return;
         }
         
-        scanData.totalBlocks.set(allPositions.size());
+        // Placement starts on the next tick and takes sections as soon as they are published
+        scanData.needsBlockPlacement = true;
+        
+        // Scan every section in parallel, each one yields its non-air blocks
+        int sectionCount = scanData.capture.getSections().size();
+        scanData.cursor = ParallelSectionScanner.scan(scanData.capture, scanData.previousHashes, getShellFiller(), 
+            scanData.cloneSections, scanData.sectionQueue.remainingCapacity(), scanData.handle::isCancelled, 
+            result -> publishSection(scanData, result));
         
-        for (BlockPos relativePos : allPositions) {
-            // Check if scan was cancelled
-            if (!activeScanMap.containsKey(scanData.player.getUUID())) {
+        scanData.cursor.getFinished().whenCompleteAsync((ignored, error) -> {
+            if (error != null) {
+                LOGGER.error("Error scanning table at {}: {}", scanData.tablePos, error.getMessage());
+                failScan(scanData, "Error during scan: ", error);
                 return;
             }
+            if (scanData.previousHashes != null) {
+                LOGGER.info("Incremental rescan: {} of {} sections unchanged", 
+                           scanData.unchangedSections.get(), sectionCount);
+            }
             
-            BlockPos sourcePos = sourceCenter.offset(relativePos);
-            BlockState state = sourceLevel.getBlockState(sourcePos);
+            // The snapshot is not needed once every section is queued
+            scanData.capture = null;
+            scanData.scanFinished = true;
+        }, scanData.level.getServer());
+    }
+    
+    /**
+     * Queue the captured block entities for placement, on the server thread
+     */
+    private static void queueBlockEntities(ScanData scanData, AreaCapture capture) {
+        for (AreaCapture.BlockEntitySnapshot blockEntity : capture.getBlockEntities()) {
+            scanData.blockEntityPositions.add(blockEntity.relativePos, blockEntity.stateId);
+            scanData.blockEntityData.put(blockEntity.relativePos, blockEntity.data);
+            scanData.blockEntityBytes += blockEntity.data.length;
+        }
+        scanData.totalBlocks.addAndGet(capture.getBlockEntities().size());
+    }
+    
+    /**
+     * Block that replaces hidden blocks on shell scans, or null when every block is copied
+     */
+    @Nullable
+    private static BlockState getShellFiller() {
+        if (!CreativePrototyperConfig.COMMON.shellOnlyCapture.get()) {
+            return null;
+        }
+        
+        String fillerId = CreativePrototyperConfig.COMMON.shellFillerBlock.get();
+        ResourceLocation location = ResourceLocation.tryParse(fillerId);
+        Block filler = location != null ? ForgeRegistries.BLOCKS.getValue(location) : null;
+        
+        // A filler with a block entity would need data to copy, so it falls back to air
+        if (filler == null || filler.defaultBlockState().hasBlockEntity()) {
+            LOGGER.warn("Invalid shell filler block '{}', leaving hidden blocks out", fillerId);
+            return Blocks.AIR.defaultBlockState();
+        }
+        return filler.defaultBlockState();
+    }
+    
+    /**
+     * Hand one scanned section to the placer, called on the scan threads.
+     * The cursor only scans a section once the queue has room for it, so this never waits and
+     * the scan never runs far ahead of placement.
+     */
+    private static void publishSection(ScanData scanData, ParallelSectionScanner.SectionResult result) {
+        if (result.unchanged) {
+            scanData.unchangedSections.incrementAndGet();
+        }
+        scanData.sectionQueue.offer(result);
+    }
+    
+    /**
+     * Move published sections into the placement queues, on the server thread
+     */
+    private static void drainScannedSections(ScanData scanData) {
+        // With a memory ceiling the queues spill to disk instead, so take everything that is ready
+        boolean bounded = scanData.memoryCeiling > 0;
+        byte[] classes = BlockClassification.getTable();
+        int taken = 0;
+        ParallelSectionScanner.SectionResult result;
+        while ((bounded || scanData.pendingBlocks.size() < MAX_QUEUED_BLOCKS) 
+               && scanData.clonedSections.size() < MAX_QUEUED_CLONES
+               && (result = scanData.sectionQueue.poll()) != null) {
+            taken++;
+            // Counted here rather than when published, so checkpoints see queues and totals from the same moment
+            scanData.totalBlocks.addAndGet(result.size + result.clonedBlocks);
+            scanData.sectionHashes.put(result.pos.asLong(), result.hash);
             
-            // Skip if this has a block entity - we'll handle those on the main thread
-            if (state.hasBlockEntity()) {
-                scanData.blockEntityPositions.add(new BlockData(relativePos, state, null));
+            if (result.clonedStates != null) {
+                // Counted against its chunk like a block, so the chunk isn't relit before the copy is in
+                scanData.clonedSections.add(result);
+                scanData.trackQueued(scanData.getRelativePos(result.pos), 1);
+                scanData.processedBlocks.addAndGet(result.clonedBlocks);
                 continue;
             }
             
-            // Build this block immediately in the creative dimension
-            BlockPos targetPos = targetCenter.offset(relativePos);
-            
-            // Check if this block is allowed before placing
-            if (!BannedBlocksManager.isBlockStateBanned(state)) {
-                // Add to the pending blocks to be placed on the main thread
-                scanData.pendingBlocks.add(new BlockData(relativePos, state, null));
+            for (int i = 0; i < result.size; i++) {
+                long relativePos = result.positions[i];
+                int stateId = result.stateIds[i];
+                
+                // Check if this block is allowed before placing, block entities were already queued from the capture
+                byte flags = classes[stateId];
+                if ((flags & BlockClassification.BANNED) == 0) {
+                    if ((flags & BlockClassification.PAIRED) != 0) {
+                        // Held until both halves can go down together
+                        scanData.pairedBlocks.put(relativePos, stateId);
+                    } else {
+                        // Add to the pending blocks to be placed on the main thread, attachments wait for their supports
+                        PackedBlockQueue queue = (flags & BlockClassification.ATTACHED) != 0 
+                            ? scanData.attachedBlocks : scanData.pendingBlocks;
+                        queue.add(relativePos, stateId);
+                        scanData.trackQueued(relativePos, 1);
+                    }
+                }
+                
+                // Update progress
+                scanData.processedBlocks.incrementAndGet();
             }
-            
-            // Update progress
-            scanData.processedBlocks.incrementAndGet();
         }
         
-        // Mark as ready for block entity scanning and pending block placement
-        scanData.needsBlockPlacement = true;
+        // Lets a scan that stopped on a full queue carry on
+        ParallelSectionScanner.SectionCursor cursor = scanData.cursor;
+        if (cursor != null) {
+            cursor.sectionsTaken(taken);
+        }
     }
     
     /**
@@ -201,125 +477,501 @@ public class AsyncAreaScanner {
      */
     @SubscribeEvent
     public static void onServerTick(TickEvent.ServerTickEvent event) {
-        if (event.phase != TickEvent.Phase.END || activeScanMap.isEmpty()) {
+        if (event.phase != TickEvent.Phase.END) {
             return;
         }
         
-        // Process for each active scan
-        activeScanMap.forEach((playerId, scanData) -> {
-            if (!scanData.needsBlockPlacement) {
-                return; // Still waiting for async scan
+        // Save the remaining work every few seconds so a restart doesn't lose it,
+        // this also drops the checkpoint once the last scan is done
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        ScanCheckpointManager.tick(server, activeScanMap.values());
+        if (activeScanMap.isEmpty()) {
+            PlacementScheduler.recordIdleTick(server);
+            return;
+        }
+        
+        // Spend only the tick time the server can spare
+        long tickStart = System.nanoTime();
+        blockEntityBytesLeft = CreativePrototyperConfig.COMMON.blockEntityBytesPerTick.get();
+        long budgetEnd = tickStart + PlacementScheduler.getTickBudgetNanos(server);
+        
+        // Scans still waiting for their async scan don't take part this tick. Paused scans only
+        // take in what they scanned, so their scan goes on until the placement queues are full
+        List<ScanData> readyScans = new ArrayList<>();
+        for (ScanData scanData : activeScanMap.values()) {
+            if (scanData.needsBlockPlacement && !scanData.awaitingLight) {
+                drainScannedSections(scanData);
+                if (!scanData.handle.isPaused()) {
+                    readyScans.add(scanData);
+                }
             }
+        }
+        
+        // Share the one tick budget between all scans, however many there are
+        List<ScanData> orderedScans = PlacementScheduler.orderScans(readyScans);
+        int remainingWeight = 0;
+        int placedBefore = 0;
+        for (ScanData scanData : orderedScans) {
+            remainingWeight += PlacementScheduler.getWeight(scanData);
+            placedBefore += scanData.placedBlocks.get();
+        }
+        
+        for (int i = 0; i < orderedScans.size(); i++) {
+            ScanData scanData = orderedScans.get(i);
+            int weight = PlacementScheduler.getWeight(scanData);
+            
+            // Each scan gets its weighted share of what is left, so unused time rolls over to the next
+            long now = System.nanoTime();
+            long deadline = now + Math.max(0L, budgetEnd - now) * weight / remainingWeight;
+            remainingWeight -= weight;
             
-            // Process a small batch of block placements per tick
-            processBlockPlacement(scanData);
+            // Only the scan at the head of the rotation is guaranteed progress on an overloaded tick
+            boolean guaranteed = i == 0;
             
-            // Process a small batch of block entities per tick
-            if (scanData.pendingBlocks.isEmpty() && !scanData.blockEntityPositions.isEmpty()) {
-                processBlockEntityChunk(scanData);
+            try {
+                // Place blocks until this scan's share runs out
+                processBlockPlacement(scanData, deadline, 
+                    guaranteed ? CreativePrototyperConfig.COMMON.blocksPerTick.get() : 0);
+                
+                // Once no more sections can arrive, chunks without queued blocks are done and get their one relight
+                if (scanData.isScanComplete()) {
+                    relightFinishedChunks(scanData, false);
+                }
+                
+                // Then copy block entities with whatever budget is left, once every block of the scan is down
+                if (scanData.isPlacementComplete()) {
+                    if (scanData.shapePass == null) {
+                        processBlockEntityChunk(scanData, deadline, 
+                            guaranteed ? CreativePrototyperConfig.COMMON.blockEntitiesPerTick.get() : 0);
+                    } else if (scanData.shapePass.run(deadline)) {
+                        LOGGER.info("Updated shapes of {} blocks in build of table at {}", 
+                                   scanData.shapePass.getChangedBlocks(), scanData.tablePos);
+                        finishLighting(scanData);
+                    }
+                }
+                
+                // Ticks scheduled by this tick's placements go before the level gets to run them,
+                // only in the sections they touched so ticks elsewhere are kept
+                if (!scanData.touchedSections.isEmpty()) {
+                    BoundingBox targetBox = scanData.getTargetBox();
+                    for (long sectionKey : scanData.touchedSections) {
+                        ShapeUpdatePass.clearScheduledTicks(scanData.creativeLevel, targetBox, sectionKey);
+                    }
+                    scanData.touchedSections.clear();
+                }
+            } catch (UncheckedIOException e) {
+                // The spill file is gone or the disk is full, the build can't continue
+                LOGGER.error("Error reading spilled blocks of table at {}: {}", scanData.tablePos, e.getMessage());
+                failScan(scanData, "Build failed: ", e);
             }
-        });
+        }
+        
+        // Measure the placement rate for build time estimates
+        int placedAfter = 0;
+        for (ScanData scanData : orderedScans) {
+            placedAfter += scanData.placedBlocks.get();
+        }
+        PlacementScheduler.recordPlacementTime(server, System.nanoTime() - tickStart, placedAfter - placedBefore);
+        
+        for (ScanData scanData : readyScans) {
+            scanData.handle.tickProgress(server.getTickCount());
+        }
+    }
+    
+    /**
+     * Active scans by player, for checkpointing
+     */
+    static Map<UUID, ScanData> getActiveScans() {
+        return activeScanMap;
+    }
+    
+    /**
+     * Continue placing a scan restored from a checkpoint
+     */
+    static void resumeScan(ScanData scanData, LongSet unscannedSections) {
+        scanData.needsBlockPlacement = true;
+        activeScanMap.put(scanData.playerId, scanData);
+        LOGGER.info("Resumed build of table at {} with {} blocks, {} block entities and {} unscanned sections left", 
+                   scanData.tablePos, scanData.pendingBlocks.size(), scanData.blockEntityPositions.size(), 
+                   unscannedSections.size());
+        if (unscannedSections.isEmpty()) {
+            scanData.scanFinished = true;
+            return;
+        }
+        
+        // The queued blocks are placed meanwhile, the sections the scan never got to are captured again as they are now
+        scanData.uncapturedSections = unscannedSections;
+        ChunkTicketLoader.withLoadedArea(scanData.level, scanData.tablePos, scanData.region, () -> {
+                if (!scanData.handle.isCancelled()) {
+                    scanData.capture = AreaCapture.capture(scanData.level, scanData.tablePos, scanData.region, 
+                        unscannedSections, scanData.cloneSections, scanData.copyLight);
+                    scanData.uncapturedSections = null;
+                }
+            })
+            .thenRun(() -> scanAndBuildNonTileEntityBlocks(scanData))
+            .exceptionally(e -> {
+                LOGGER.error("Error resuming scan of table at {}: {}", scanData.tablePos, e.getMessage());
+                scanData.level.getServer().execute(() -> failScan(scanData, "Error resuming scan: ", e));
+                return null;
+            });
     }
     
     /**
      * Process a chunk of pending blocks
      */
-    private static void processBlockPlacement(ScanData scanData) {
-        final int BATCH_SIZE = CreativePrototyperConfig.COMMON.blocksPerTick.get();
+    private static void processBlockPlacement(ScanData scanData, long deadline, int minimum) {
+        // Whole sections first, each costs about as much as a handful of single blocks
+        if (!scanData.clonedSections.isEmpty()) {
+            processClonedSections(scanData, deadline, minimum);
+        }
+        
+        // Supports go down while the scan runs, attachments and then pairs once every support is placed
+        PackedBlockQueue queue = scanData.pendingBlocks;
+        if (queue.isEmpty() && scanData.isScanComplete()) {
+            queue = scanData.attachedBlocks;
+        }
+        
+        if (!queue.isEmpty()) {
+            if (CreativePrototyperConfig.COMMON.bulkPlacement.get()) {
+                processBulkBlockPlacement(scanData, queue, deadline, minimum);
+            } else {
+                processSingleBlockPlacement(scanData, queue, deadline, minimum);
+            }
+        } else if (scanData.isScanComplete()) {
+            processPairPlacement(scanData, deadline, minimum);
+        }
+        
+        // Track progress for persistence
+        CreativeTableBlockEntity tableEntity = scanData.getTableEntity();
+        if (tableEntity != null) {
+            tableEntity.setCurrentScanProgress(scanData.placedBlocks.get());
+            tableEntity.setTotalScanBlocks(scanData.totalBlocks.get());
+        }
+    }
+    
+    /**
+     * Place pending blocks one at a time with full block updates
+     */
+    private static void processSingleBlockPlacement(ScanData scanData, PackedBlockQueue queue, 
+                                                    long deadline, int minimum) {
         int processed = 0;
+        BlockPos.MutableBlockPos targetPos = new BlockPos.MutableBlockPos();
         
-        while (!scanData.pendingBlocks.isEmpty() && processed < BATCH_SIZE) {
-            BlockData blockData = scanData.pendingBlocks.remove(0);
+        while (!queue.isEmpty() 
+               && (processed < minimum || System.nanoTime() < deadline)) {
+            long relativePos = queue.peekPos();
+            BlockState state = Block.stateById(queue.peekStateId());
+            queue.remove();
+            scanData.trackQueued(relativePos, -1);
             processed++;
             
             try {
                 // Place the block in the creative dimension
-                BlockPos targetPos = scanData.placementPos.offset(blockData.relativePos);
-                scanData.creativeLevel.setBlock(targetPos, blockData.state, 3);
+                setTargetPos(targetPos, scanData.placementPos, relativePos);
+                scanData.creativeLevel.setBlock(targetPos, state, scanData.getPlacementFlags());
+                scanData.markTouched(targetPos);
                 
                 // Update progress
                 scanData.placedBlocks.incrementAndGet();
-                
-                // Track progress for persistence
-                scanData.tableEntity.setCurrentScanProgress(scanData.placedBlocks.get());
-                scanData.tableEntity.setTotalScanBlocks(scanData.totalBlocks.get());
             } catch (Exception e) {
                 LOGGER.error("Error placing block: " + e.getMessage());
             }
         }
+    }
+    
+    /**
+     * Write pending blocks straight into the target chunk sections
+     */
+    private static void processBulkBlockPlacement(ScanData scanData, PackedBlockQueue queue, 
+                                                  long deadline, int minimum) {
+        int processed = 0;
+        BlockPos.MutableBlockPos targetPos = new BlockPos.MutableBlockPos();
         
-        // Update progress message every 20 ticks
-        if (scanData.creativeLevel.getGameTime() % 20 == 0) {
-            int totalBlocks = scanData.totalBlocks.get();
-            int placedBlocks = scanData.placedBlocks.get();
-            int percentage = totalBlocks > 0 ? (placedBlocks * 100) / totalBlocks : 0;
+        // Write in slices of one section's worth of blocks, checking the clock between slices
+        while (!queue.isEmpty() 
+               && (processed < minimum || System.nanoTime() < deadline)) {
+            int slice = 0;
+            for (; slice < BULK_SLICE_SIZE && !queue.isEmpty(); slice++) {
+                long relativePos = queue.peekPos();
+                setTargetPos(targetPos, scanData.placementPos, relativePos);
+                scanData.sectionWriter.add(targetPos, Block.stateById(queue.peekStateId()));
+                queue.remove();
+                scanData.trackQueued(relativePos, -1);
+            }
+            processed += slice;
+            
+            try {
+                scanData.sectionWriter.flush();
+                
+                // Blocks that were identical to the target are counted as placed too
+                scanData.placedBlocks.addAndGet(slice);
+            } catch (Exception e) {
+                LOGGER.error("Error writing block sections: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Install sections copied whole into their aligned target sections
+     */
+    private static void processClonedSections(ScanData scanData, long deadline, int minimum) {
+        int installed = 0;
+        BlockPos.MutableBlockPos targetPos = new BlockPos.MutableBlockPos();
+        
+        while (!scanData.clonedSections.isEmpty() 
+               && ((minimum > 0 && installed == 0) || System.nanoTime() < deadline)) {
+            ParallelSectionScanner.SectionResult result = scanData.clonedSections.poll();
+            long relativePos = scanData.getRelativePos(result.pos);
+            setTargetPos(targetPos, scanData.placementPos, relativePos);
+            installed++;
+            
+            try {
+                SectionPos sectionPos = SectionPos.of(targetPos);
+                boolean lightCopied = scanData.sectionWriter.replaceSection(sectionPos, result.clonedStates, 
+                    result.clonedBiomes, result.clonedBlockLight, result.clonedSkyLight);
+                
+                if (lightCopied) {
+                    // Its faces are checked once every copy is in, see relightLitSectionFaces
+                    scanData.litSections.add(sectionPos.asLong());
+                    scanData.unsentChunks.add(ChunkPos.asLong(targetPos));
+                } else {
+                    // A copy without light gets its chunk relit and resent whatever the lighting mode
+                    scanData.unlitChunks.add(ChunkPos.asLong(targetPos));
+                }
+                scanData.placedBlocks.addAndGet(result.clonedBlocks);
+            } catch (Exception e) {
+                LOGGER.error("Error copying section: " + e.getMessage());
+            }
+            scanData.trackQueued(relativePos, -1);
+        }
+    }
+    
+    /**
+     * Place both halves of two block tall blocks back to back, so neither half sees the other missing
+     */
+    private static void processPairPlacement(ScanData scanData, long deadline, int minimum) {
+        int processed = 0;
+        BlockPos.MutableBlockPos targetPos = new BlockPos.MutableBlockPos();
+        
+        while (!scanData.pairedBlocks.isEmpty() 
+               && (processed < minimum || System.nanoTime() < deadline)) {
+            if (scanData.pairOrder == null || scanData.pairIndex >= scanData.pairOrder.size()) {
+                // Halves put back on an earlier pass are picked up by a fresh order
+                scanData.pairOrder = new LongArrayList(scanData.pairedBlocks.keySet());
+                scanData.pairIndex = 0;
+            }
             
+            long relativePos = scanData.pairOrder.getLong(scanData.pairIndex++);
+            int stateId = scanData.pairedBlocks.remove(relativePos);
+            if (stateId < 0) continue; // Already placed with its other half
+            
+            BlockState state = Block.stateById(stateId);
+            DoubleBlockHalf half = state.getValue(BlockStateProperties.DOUBLE_BLOCK_HALF);
+            long otherPos = BlockPos.offset(relativePos, half == DoubleBlockHalf.LOWER ? Direction.UP : Direction.DOWN);
+            int otherId = scanData.pairedBlocks.remove(otherPos);
+            BlockState other = otherId < 0 ? null : Block.stateById(otherId);
+            
+            // Two lower halves stacked on each other are not a pair
+            if (other != null && other.getValue(BlockStateProperties.DOUBLE_BLOCK_HALF) == half) {
+                scanData.pairedBlocks.put(otherPos, otherId);
+                other = null;
+            }
+            
+            try {
+                if (other == null) {
+                    // The other half was outside the region
+                    setTargetPos(targetPos, scanData.placementPos, relativePos);
+                    scanData.creativeLevel.setBlock(targetPos, state, scanData.getPlacementFlags());
+                    scanData.markTouched(targetPos);
+                    processed++;
+                } else {
+                    // The lower half goes in silently, the upper half's updates then find a complete pair
+                    boolean lowerFirst = half == DoubleBlockHalf.LOWER;
+                    setTargetPos(targetPos, scanData.placementPos, lowerFirst ? relativePos : otherPos);
+                    scanData.creativeLevel.setBlock(targetPos, lowerFirst ? state : other, ShapeUpdatePass.FROZEN_FLAGS);
+                    scanData.markTouched(targetPos);
+                    setTargetPos(targetPos, scanData.placementPos, lowerFirst ? otherPos : relativePos);
+                    scanData.creativeLevel.setBlock(targetPos, lowerFirst ? other : state, scanData.getPlacementFlags());
+                    scanData.markTouched(targetPos);
+                    processed += 2;
+                }
+            } catch (Exception e) {
+                LOGGER.error("Error placing block pair: " + e.getMessage());
+            }
         }
+        
+        scanData.placedBlocks.addAndGet(processed);
+    }
+    
+    /**
+     * Resolve a packed relative position against a placement origin without allocating
+     */
+    private static void setTargetPos(BlockPos.MutableBlockPos targetPos, BlockPos origin, long relativePos) {
+        targetPos.set(
+            origin.getX() + BlockPos.getX(relativePos),
+            origin.getY() + BlockPos.getY(relativePos),
+            origin.getZ() + BlockPos.getZ(relativePos)
+        );
     }
     
     /**
      * Process a chunk of block entities
      */
-    private static void processBlockEntityChunk(ScanData scanData) {
-        final int BATCH_SIZE = CreativePrototyperConfig.COMMON.blockEntitiesPerTick.get();
+    private static void processBlockEntityChunk(ScanData scanData, long deadline, int minimum) {
         int processed = 0;
         
-        ServerLevel sourceLevel = scanData.level;
-        BlockPos sourceCenter = scanData.tablePos;
         ServerLevel targetLevel = scanData.creativeLevel;
         BlockPos targetCenter = scanData.placementPos;
         
-        while (!scanData.blockEntityPositions.isEmpty() && processed < BATCH_SIZE) {
-            BlockData blockData = scanData.blockEntityPositions.remove(0);
+        while (!scanData.blockEntityPositions.isEmpty() 
+               && (processed < minimum || System.nanoTime() < deadline)) {
+            // Out of bytes for this tick, only a guaranteed scan still copies its first one so it never stalls
+            if (blockEntityBytesLeft <= 0 && (minimum == 0 || processed > 0)) {
+                break;
+            }
+            
+            long packedPos = scanData.blockEntityPositions.peekPos();
+            BlockPos relativePos = BlockPos.of(packedPos);
+            BlockState state = Block.stateById(scanData.blockEntityPositions.peekStateId());
+            scanData.blockEntityPositions.remove();
             processed++;
             
             try {
-                // Get source block and entity data
-                BlockPos sourcePos = sourceCenter.offset(blockData.relativePos);
-                BlockState state = sourceLevel.getBlockState(sourcePos);
-                BlockEntity blockEntity = sourceLevel.getBlockEntity(sourcePos);
-                
-                if (blockEntity != null) {
-                    // Get block entity data
-                    CompoundTag blockEntityData = blockEntity.saveWithoutMetadata();
+                // Data saved with the capture and kept in checkpoints, so blocks and block entities
+                // come from the same snapshot even after a restart
+                byte[] blockEntityData = scanData.blockEntityData.remove(packedPos);
+                if (blockEntityData != null) {
+                    scanData.blockEntityBytes -= blockEntityData.length;
+                    
+                    // Charged by size, so one chest of books costs more than a hundred empty signs
+                    blockEntityBytesLeft -= blockEntityData.length;
                     
                     // Place in creative dimension
-                    BlockPos targetPos = targetCenter.offset(blockData.relativePos);
+                    BlockPos targetPos = targetCenter.offset(relativePos);
                     
                     // Check if this block is allowed
-                    if (!BannedBlocksManager.isBlockStateBanned(state) && 
-                    !(blockEntity instanceof CreativeTableBlockEntity)) {
+                    if (!BannedBlocksManager.isBlockStateBanned(state)) {
                     // Place the block
-                    targetLevel.setBlock(targetPos, state, 3);
+                    targetLevel.setBlock(targetPos, state, scanData.getPlacementFlags());
+                    scanData.markTouched(targetPos);
                     
                     // Set block entity data
                     BlockEntity targetEntity = targetLevel.getBlockEntity(targetPos);
                     if (targetEntity != null) {
-                        // Copy the data but update position
-                        CompoundTag dataCopy = blockEntityData.copy();
-                        dataCopy.putInt("x", targetPos.getX());
-                        dataCopy.putInt("y", targetPos.getY());
-                        dataCopy.putInt("z", targetPos.getZ());
+                        // Read back into a fresh tag, so the position is rewritten in place instead of copying it
+                        CompoundTag tag = AreaCapture.decodeBlockEntity(blockEntityData);
+                        tag.putInt("x", targetPos.getX());
+                        tag.putInt("y", targetPos.getY());
+                        tag.putInt("z", targetPos.getZ());
                         
                         // Load the data
-                        targetEntity.load(dataCopy);
+                        targetEntity.load(tag);
                         targetEntity.setChanged();
                     }
                 }
                     
                     // Update progress counters
                     scanData.placedBlocks.incrementAndGet();
-                    scanData.tableEntity.setCurrentScanProgress(scanData.placedBlocks.get());
                 }
             } catch (Exception e) {
                 LOGGER.error("Error processing block entity: " + e.getMessage());
             }
         }
         
-        // If all block entities processed, finalize the scan
+        CreativeTableBlockEntity tableEntity = scanData.getTableEntity();
+        if (tableEntity != null) {
+            tableEntity.setCurrentScanProgress(scanData.placedBlocks.get());
+        }
+        
+        // If all block entities processed, finalize the scan once every chunk is lit
         if (scanData.blockEntityPositions.isEmpty()) {
+            if (scanData.frozen) {
+                // Frozen builds get their one shape update first
+                scanData.shapePass = new ShapeUpdatePass(scanData.creativeLevel, scanData.getTargetBox());
+            } else {
+                finishLighting(scanData);
+            }
+        }
+    }
+    
+    /**
+     * Relight the chunks written without light updates that have no blocks left in the queue,
+     * and resend the ones that got sections with copied light.
+     * Every chunk is relit once per build; with all set, the remaining chunks are relit regardless of their counts.
+     */
+    private static void relightFinishedChunks(ScanData scanData, boolean all) {
+        if (!scanData.unsentChunks.isEmpty()) {
+            LongIterator unsent = scanData.unsentChunks.iterator();
+            while (unsent.hasNext()) {
+                long chunkKey = unsent.nextLong();
+                if (!all && scanData.queuedPerChunk.get(chunkKey) > 0) continue;
+                
+                // A chunk that still needs its relight is resent after it
+                unsent.remove();
+                if (!scanData.unlitChunks.contains(chunkKey)) {
+                    ChunkRelighter.resendChunk(scanData.creativeLevel, 
+                        scanData.creativeLevel.getChunk(ChunkPos.getX(chunkKey), ChunkPos.getZ(chunkKey)));
+                }
+            }
+        }
+        
+        if (scanData.unlitChunks.isEmpty()) {
+            return;
+        }
+        
+        LongIterator iterator = scanData.unlitChunks.iterator();
+        while (iterator.hasNext()) {
+            long chunkKey = iterator.nextLong();
+            if (!all && scanData.queuedPerChunk.get(chunkKey) > 0) continue;
+            
+            iterator.remove();
+            LevelChunk chunk = scanData.creativeLevel.getChunk(ChunkPos.getX(chunkKey), ChunkPos.getZ(chunkKey));
+            scanData.relights.add(ChunkRelighter.relightChunk(scanData.creativeLevel, chunk, 
+                scanData.sectionWriter.takeStaleSections(chunkKey)));
+        }
+    }
+    
+    /**
+     * Check the light on the faces of the sections installed with copied light, except where they meet
+     * another such section. Done once all of them are in, so a neighbor copied later is never taken for an edge
+     * and every neighbor that got its light any other way is.
+     */
+    private static void relightLitSectionFaces(ScanData scanData) {
+        LongIterator iterator = scanData.litSections.iterator();
+        while (iterator.hasNext()) {
+            SectionPos sectionPos = SectionPos.of(iterator.nextLong());
+            int faces = scanData.getBoundaryFaces(sectionPos);
+            if (faces != 0) {
+                scanData.relights.add(ChunkRelighter.relightFaces(scanData.creativeLevel, sectionPos, faces));
+            }
+        }
+        scanData.litSections.clear();
+    }
+    
+    /**
+     * Relight what is left and finalize the scan when the light engine is done with every chunk of the build
+     */
+    private static void finishLighting(ScanData scanData) {
+        relightFinishedChunks(scanData, true);
+        relightLitSectionFaces(scanData);
+        
+        List<CompletableFuture<?>> relights = new ArrayList<>(scanData.relights);
+        relights.removeIf(CompletableFuture::isDone);
+        if (relights.isEmpty()) {
             finalizeScan(scanData);
+            return;
         }
+        
+        // Kept out of the tick loop until then. Edge checks finish on the light worker, so hop back to the server thread
+        scanData.awaitingLight = true;
+        CompletableFuture.allOf(relights.toArray(new CompletableFuture[0])).whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                LOGGER.warn("Error relighting build of table at {}: {}", scanData.tablePos, error.getMessage());
+            }
+            if (activeScanMap.get(scanData.playerId) == scanData) {
+                finalizeScan(scanData);
+            }
+        }, scanData.level.getServer());
     }
     
     /**
@@ -330,17 +982,30 @@ public class AsyncAreaScanner {
             // Get total scanned and placed blocks
             int totalBlocks = scanData.totalBlocks.get();
             int placedBlocks = scanData.placedBlocks.get();
+            CreativeDimensionManager.TableKey tableKey = CreativeDimensionManager.createTableKey(
+                scanData.playerId, scanData.level.dimension(), scanData.tablePos);
             
-            scanData.tableEntity.setScanning(false);
-            scanData.tableEntity.setBuildingComplete(true);
-            
+            // A resumed build may finish before anyone loads the table again
+            CreativeTableBlockEntity tableEntity = scanData.getTableEntity();
+            if (tableEntity != null) {
+                tableEntity.setScanning(false);
+                tableEntity.setBuildingComplete(true);
+            }
             
             // Create a return portal at the build location
             createReturnPortal(scanData);
             
             // Mark build as complete in both the block entity and dimension manager
-            scanData.tableEntity.markBuildComplete(placedBlocks);
-            CreativeDimensionManager.markBuildComplete(scanData.player, placedBlocks);
+            if (tableEntity != null) {
+                tableEntity.markBuildComplete(placedBlocks);
+            }
+            CreativeDimensionManager.markBuildComplete(tableKey, placedBlocks);
+            
+            // Remember what was built so the next rescan only replaces changed sections
+            CreativeDimensionManager.setSectionHashes(
+                tableKey,
+                new CreativeDimensionManager.SectionHashes(
+                    scanData.region, scanData.placementPos, scanData.sectionHashes));
             
             // Force the chunk to be saved
             scanData.level.getChunkAt(scanData.tablePos).setUnsaved(true);
@@ -350,17 +1015,27 @@ public class AsyncAreaScanner {
                 //Component.literal("Scan and build complete! " + placedBlocks + " blocks placed."), false);
             
             // Send packet to client to notify scan completion
-            ModMessages.sendToPlayer(new ScanCompleteS2CPacket(placedBlocks), scanData.player);
+            ServerPlayer player = scanData.getPlayer();
+            if (player != null) {
+                ModMessages.sendToPlayer(new ScanCompleteS2CPacket(placedBlocks), player);
+            }
             
             // Remove from active scans
-            activeScanMap.remove(scanData.player.getUUID());
+            activeScanMap.remove(scanData.playerId, scanData);
+            scanData.release();
+            scanData.handle.complete(placedBlocks);
             
         } catch (Exception e) {
             LOGGER.error("SCAN ERROR: Error completing scan: " + e.getMessage());
             e.printStackTrace();
-            scanData.player.displayClientMessage(
-                Component.literal("Error completing scan: " + e.getMessage()), false);
-            activeScanMap.remove(scanData.player.getUUID());
+            ServerPlayer player = scanData.getPlayer();
+            if (player != null) {
+                player.displayClientMessage(
+                    Component.literal("Error completing scan: " + e.getMessage()), false);
+            }
+            activeScanMap.remove(scanData.playerId, scanData);
+            scanData.release();
+            scanData.handle.fail(e);
         }
     }
     
@@ -389,12 +1064,12 @@ public class AsyncAreaScanner {
                 // Register in the dimension manager
                 CreativeDimensionManager.TableKey originalTableKey = 
                     CreativeDimensionManager.createTableKey(
-                        scanData.player.getUUID(), 
+                        scanData.playerId, 
                         scanData.level.dimension(), 
                         scanData.tablePos
                     );
                 
-                CreativeDimensionManager.registerReturnPortal(scanData.player, portalPos, originalTableKey);
+                CreativeDimensionManager.registerReturnPortal(scanData.getPlayer(), portalPos, originalTableKey);
                 
                 LOGGER.info("Created return portal at {} in creative dimension", portalPos);
             }
@@ -421,48 +1096,256 @@ public class AsyncAreaScanner {
     /**
      * Data class for an active scan
      */
-    private static class ScanData {
-        final ServerPlayer player;
+    static class ScanData {
+        final UUID playerId;
         final ServerLevel level;
         final BlockPos tablePos;
-        final int radius;
-        final CreativeTableBlockEntity tableEntity;
+        final ScanRegion region;
+        private CreativeTableBlockEntity tableEntity;
         final ServerLevel creativeLevel;
         final BlockPos placementPos;
         final String sourceDimensionId;
-        final List<BlockData> blockEntityPositions = new ArrayList<>();
-        final List<BlockData> pendingBlocks = new ArrayList<>();
+        // Bytes of queued blocks kept in memory before spilling to disk, 0 for no limit
+        final long memoryCeiling = CreativePrototyperConfig.COMMON.scanMemoryCeilingMb.get() * 1024L * 1024L;
+        // Block entities are few, most of the ceiling goes to the block queue
+        final PackedBlockQueue blockEntityPositions = new PackedBlockQueue(memoryCeiling / 8);
+        final PackedBlockQueue attachedBlocks = new PackedBlockQueue(memoryCeiling / 8);
+        final PackedBlockQueue pendingBlocks = new PackedBlockQueue(memoryCeiling - 2 * (memoryCeiling / 8));
+        // Halves of two block tall blocks by relative position, placed in pairs after the attachments
+        final Long2IntOpenHashMap pairedBlocks = new Long2IntOpenHashMap();
+        // Sections copied whole, installed before any single block
+        final ArrayDeque<ParallelSectionScanner.SectionResult> clonedSections = new ArrayDeque<>();
+        LongArrayList pairOrder;
+        int pairIndex = 0;
+        // Serialized block entity data by packed relative position, filled from the capture or a checkpoint.
+        // Not covered by the memory ceiling, the capture's block entity limit bounds it instead
+        final Long2ObjectOpenHashMap<byte[]> blockEntityData = new Long2ObjectOpenHashMap<>();
+        long blockEntityBytes = 0L;
         final AtomicInteger processedBlocks = new AtomicInteger(0);
         final AtomicInteger placedBlocks = new AtomicInteger(0);
         final AtomicInteger totalBlocks = new AtomicInteger(0);
-        boolean needsBlockPlacement = false;
+        volatile boolean needsBlockPlacement = false;
+        volatile boolean scanFinished = false;
+        final BlockingQueue<ParallelSectionScanner.SectionResult> sectionQueue = 
+            new ArrayBlockingQueue<>(CreativePrototyperConfig.COMMON.scanQueueSections.get());
+        final AtomicInteger unchangedSections = new AtomicInteger(0);
+        AreaCapture capture;
+        // Set on the server thread once the capture is scanned
+        volatile ParallelSectionScanner.SectionCursor cursor;
+        // Sections of a resumed scan waiting for their chunks to load before they are captured again
+        @Nullable
+        LongSet uncapturedSections;
+        Long2LongOpenHashMap previousHashes;
+        final Long2LongOpenHashMap sectionHashes = new Long2LongOpenHashMap();
+        // Light is computed once per chunk after its blocks are placed instead of per block
+        final boolean deferLighting = CreativePrototyperConfig.COMMON.deferredLighting.get();
+        // Target chunks written without light updates that still need their relight
+        final LongSet unlitChunks = new LongOpenHashSet();
+        // Blocks still queued per target chunk, only counted with deferred lighting
+        final Long2IntOpenHashMap queuedPerChunk = new Long2IntOpenHashMap();
+        // Target chunks that got sections with copied light and still have to be sent to the clients
+        final LongSet unsentChunks = new LongOpenHashSet();
+        // Target sections installed whole with copied light whose faces are still to be checked
+        final LongSet litSections = new LongOpenHashSet();
+        final List<CompletableFuture<?>> relights = new ArrayList<>();
+        volatile boolean awaitingLight = false;
+        // Placed without neighbor updates or scheduled ticks, then shape updated once at the end
+        final boolean frozen = CreativePrototyperConfig.COMMON.frozenPlacement.get();
+        // Target sections a frozen build set blocks in this tick, whose scheduled ticks are dropped after it
+        final LongSet touchedSections = new LongOpenHashSet();
+        ShapeUpdatePass shapePass;
+        // Where checkpoints append this build's queued blocks, set by the checkpoint manager
+        ScanCheckpointManager.Journal journal;
+        // Lined up with the section grid, so sections entirely inside the region are copied whole
+        final boolean cloneSections;
+        final boolean copyLight;
+        final SectionBlockWriter sectionWriter;
+        final ScanHandle handle = new ScanHandle(this);
         
-        ScanData(ServerPlayer player, ServerLevel level, BlockPos tablePos, int radius, 
-                CreativeTableBlockEntity tableEntity, ServerLevel creativeLevel, 
+        ScanData(UUID playerId, ServerLevel level, BlockPos tablePos, ScanRegion region, 
+                @Nullable CreativeTableBlockEntity tableEntity, ServerLevel creativeLevel, 
                 BlockPos placementPos, String sourceDimensionId) {
-            this.player = player;
+            this.playerId = playerId;
             this.level = level;
             this.tablePos = tablePos;
-            this.radius = radius;
+            this.region = region;
             this.tableEntity = tableEntity;
             this.creativeLevel = creativeLevel;
             this.placementPos = placementPos;
             this.sourceDimensionId = sourceDimensionId;
+            this.cloneSections = CreativePrototyperConfig.COMMON.bulkPlacement.get() 
+                && isSectionAligned(tablePos, placementPos);
+            this.copyLight = cloneSections && CreativePrototyperConfig.COMMON.copySourceLight.get();
+            this.sectionWriter = new SectionBlockWriter(creativeLevel, deferLighting ? unlitChunks : null);
+            this.pairedBlocks.defaultReturnValue(-1);
+        }
+        
+        /**
+         * The player who started the scan, or null while they are offline
+         */
+        @Nullable
+        ServerPlayer getPlayer() {
+            return level.getServer().getPlayerList().getPlayer(playerId);
+        }
+        
+        /**
+         * The source table, or null while its chunk is not loaded
+         */
+        @Nullable
+        CreativeTableBlockEntity getTableEntity() {
+            if (tableEntity == null || tableEntity.isRemoved()) {
+                tableEntity = null;
+                if (level.isLoaded(tablePos) 
+                        && level.getBlockEntity(tablePos) instanceof CreativeTableBlockEntity table) {
+                    tableEntity = table;
+                }
+            }
+            return tableEntity;
+        }
+        
+        /**
+         * Note a block set in a frozen build, so the ticks it scheduled are dropped after this tick
+         */
+        void markTouched(BlockPos targetPos) {
+            if (frozen) {
+                touchedSections.add(SectionPos.asLong(targetPos));
+            }
+        }
+        
+        /**
+         * Flags for blocks placed through setBlock
+         */
+        int getPlacementFlags() {
+            return frozen ? ShapeUpdatePass.FROZEN_FLAGS : Block.UPDATE_ALL;
+        }
+        
+        /**
+         * The blocks the build covers in the creative dimension
+         */
+        BoundingBox getTargetBox() {
+            return new BoundingBox(
+                placementPos.getX() + region.getMinX(),
+                Math.max(creativeLevel.getMinBuildHeight(), placementPos.getY() + region.getMinY()),
+                placementPos.getZ() + region.getMinZ(),
+                placementPos.getX() + region.getMaxX(),
+                Math.min(creativeLevel.getMaxBuildHeight() - 1, placementPos.getY() + region.getMaxY()),
+                placementPos.getZ() + region.getMaxZ());
+        }
+        
+        /**
+         * Faces of a target section whose neighbor was not installed whole with copied light as well,
+         * as bits by Direction.get3DDataValue. Light copied with the section is only wrong near those:
+         * outside the region, and next to sections that were empty, placed block by block, unchanged or relit.
+         */
+        int getBoundaryFaces(SectionPos sectionPos) {
+            int faces = 0;
+            for (Direction side : Direction.values()) {
+                long neighbor = SectionPos.asLong(sectionPos.x() + side.getStepX(), 
+                    sectionPos.y() + side.getStepY(), sectionPos.z() + side.getStepZ());
+                if (!litSections.contains(neighbor)) {
+                    faces |= 1 << side.get3DDataValue();
+                }
+            }
+            return faces;
+        }
+        
+        /**
+         * Rough bytes held by the maps the memory ceiling doesn't cover. Each entry of an open hash map
+         * takes its key and value, plus about a third again in free slots.
+         */
+        long getMapMemoryBytes() {
+            long entryBytes = (long) pairedBlocks.size() * (Long.BYTES + Integer.BYTES)
+                + (long) sectionHashes.size() * (Long.BYTES + Long.BYTES)
+                + (long) queuedPerChunk.size() * (Long.BYTES + Integer.BYTES)
+                + (long) blockEntityData.size() * (Long.BYTES + Long.BYTES);
+            return entryBytes * 4 / 3;
+        }
+        
+        /**
+         * Position of a source section's origin relative to the table
+         */
+        long getRelativePos(SectionPos sectionPos) {
+            return BlockPos.asLong(
+                sectionPos.minBlockX() - tablePos.getX(),
+                sectionPos.minBlockY() - tablePos.getY(),
+                sectionPos.minBlockZ() - tablePos.getZ());
+        }
+        
+        /**
+         * Count a block added to (1) or taken from (-1) the queue against its target chunk
+         */
+        void trackQueued(long relativePos, int delta) {
+            if (!deferLighting) {
+                return;
+            }
+            long chunkKey = ChunkPos.asLong(
+                SectionPos.blockToSectionCoord(placementPos.getX() + BlockPos.getX(relativePos)),
+                SectionPos.blockToSectionCoord(placementPos.getZ() + BlockPos.getZ(relativePos)));
+            if (queuedPerChunk.addTo(chunkKey, delta) + delta <= 0) {
+                queuedPerChunk.remove(chunkKey);
+            }
+        }
+        
+        /**
+         * Drop the queued blocks and delete any spill files.
+         * What was already written gets its relight, so a stopped build isn't left dark.
+         */
+        void release() {
+            relightFinishedChunks(this, true);
+            relightLitSectionFaces(this);
+            clonedSections.clear();
+            pendingBlocks.clear();
+            attachedBlocks.clear();
+            pairedBlocks.clear();
+            pairOrder = null;
+            blockEntityPositions.clear();
+            blockEntityData.clear();
+            blockEntityBytes = 0L;
+            sectionQueue.clear();
+            queuedPerChunk.clear();
+            touchedSections.clear();
+            relights.clear();
+        }
+        
+        /**
+         * Source sections whose blocks are not in the placement queues yet: not scanned, still in the
+         * section queue, or copied whole and waiting to be installed. Read on the server thread.
+         */
+        LongSet getUnscannedSections() {
+            LongSet unscanned = new LongOpenHashSet();
+            if (capture != null) {
+                for (AreaCapture.SectionSnapshot section : capture.getSections()) {
+                    if (!sectionHashes.containsKey(section.pos.asLong())) {
+                        unscanned.add(section.pos.asLong());
+                    }
+                }
+            } else {
+                for (ParallelSectionScanner.SectionResult result : sectionQueue) {
+                    unscanned.add(result.pos.asLong());
+                }
+            }
+            if (uncapturedSections != null) {
+                unscanned.addAll(uncapturedSections);
+            }
+            for (ParallelSectionScanner.SectionResult result : clonedSections) {
+                unscanned.add(result.pos.asLong());
+            }
+            return unscanned;
+        }
+        
+        /**
+         * Whether every scanned section has been moved into the placement queues
+         */
+        boolean isScanComplete() {
+            return scanFinished && sectionQueue.isEmpty();
         }
-    }
-    
-    /**
-     * Data class for a block position, state, and entity data
-     */
-    private static class BlockData {
-        final BlockPos relativePos;
-        final BlockState state;
-        final CompoundTag blockEntityData;
         
-        BlockData(BlockPos relativePos, BlockState state, CompoundTag blockEntityData) {
-            this.relativePos = relativePos;
-            this.state = state;
-            this.blockEntityData = blockEntityData;
+        /**
+         * Whether every block but the block entities has been placed
+         */
+        boolean isPlacementComplete() {
+            return isScanComplete() && clonedSections.isEmpty() && pendingBlocks.isEmpty() 
+                && attachedBlocks.isEmpty() && pairedBlocks.isEmpty();
         }
     }
 }
\ No newline at end of file
@@ -49,6 +49,9 @@ public class BannedBlocksManager {
         
         initialized = true;
         System.out.println("Banned blocks initialized with " + bannedBlocks.size() + " entries");
+        
+        // The scan loops read the banned flag from the classification table
+        BlockClassification.rebuild();
     }
     
     /**
@@ -0,0 +1,90 @@
+package com.craigsmods.creativeprototyper.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.block.BaseRailBlock;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.FallingBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.BlockStateProperties;
+import net.minecraft.world.level.material.PushReaction;
+
+/**
+ * Flags for every block state, indexed by Block.getId, so the scan loops classify a block with one array read.
+ * The table is rebuilt whenever the banned blocks are reloaded and swapped in as a whole,
+ * so a running scan keeps reading the table it started with.
+ */
+public class BlockClassification {
+    public static final byte AIR = 1;
+    public static final byte BLOCK_ENTITY = 1 << 1;
+    public static final byte BANNED = 1 << 2;
+    // Hides the faces of the blocks next to it
+    public static final byte OPAQUE = 1 << 3;
+    // May be swapped for the filler when a shell scan finds it enclosed
+    public static final byte FILLER_ELIGIBLE = 1 << 4;
+    // Needs a neighbor to hold it up, so it is placed after the supports
+    public static final byte ATTACHED = 1 << 5;
+    // One half of a two block tall block, placed together with the other half
+    public static final byte PAIRED = 1 << 6;
+
+    private static volatile byte[] table = new byte[0];
+
+    /**
+     * The current table, built on first use or when blocks were registered after the last build
+     */
+    public static byte[] getTable() {
+        byte[] current = table;
+        if (current.length != Block.BLOCK_STATE_REGISTRY.size()) {
+            current = rebuild();
+        }
+        return current;
+    }
+
+    /**
+     * Classify every registered block state and publish the new table
+     */
+    public static synchronized byte[] rebuild() {
+        byte[] flags = new byte[Block.BLOCK_STATE_REGISTRY.size()];
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            flags[Block.getId(state)] = classify(state);
+        }
+        table = flags;
+        return flags;
+    }
+
+    private static byte classify(BlockState state) {
+        if (state.isAir()) {
+            return AIR;
+        }
+
+        byte flags = 0;
+        if (state.hasBlockEntity()) {
+            flags |= BLOCK_ENTITY;
+        } else {
+            flags |= FILLER_ELIGIBLE;
+            if (state.hasProperty(BlockStateProperties.DOUBLE_BLOCK_HALF)) {
+                flags |= PAIRED;
+            } else if (needsSupport(state)) {
+                flags |= ATTACHED;
+            }
+        }
+        if (BannedBlocksManager.isBlockStateBanned(state)) {
+            flags |= BANNED;
+        }
+        if (state.isSolidRender(EmptyBlockGetter.INSTANCE, BlockPos.ZERO)) {
+            flags |= OPAQUE;
+        }
+        return flags;
+    }
+
+    /**
+     * Whether a block breaks or falls without its neighbors. Pistons destroy the blocks that hang on
+     * something (torches, dust, buttons, plants, vines, liquids), rails and falling blocks are added to those.
+     */
+    private static boolean needsSupport(BlockState state) {
+        Block block = state.getBlock();
+        return state.getPistonPushReaction() == PushReaction.DESTROY
+            || block instanceof BaseRailBlock
+            || block instanceof FallingBlock;
+    }
+}
@@ -0,0 +1,149 @@
+package com.craigsmods.creativeprototyper.util;
+
+import it.unimi.dsi.fastutil.ints.IntSet;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.level.ThreadedLevelLightEngine;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.LightLayer;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nullable;
+
+/**
+ * Relights whole chunks on the light engine's worker after their sections were rewritten directly,
+ * or installs light copied along with a section and rechecks only its edges
+ */
+public class ChunkRelighter {
+
+    /**
+     * Throw away the stored light of a section so the next relight computes it from scratch
+     */
+    public static void resetSectionLight(ServerLevel level, SectionPos sectionPos) {
+        ThreadedLevelLightEngine lightEngine = level.getChunkSource().getLightEngine();
+        lightEngine.queueSectionData(LightLayer.BLOCK, sectionPos, new DataLayer());
+        if (level.dimensionType().hasSkyLight()) {
+            lightEngine.queueSectionData(LightLayer.SKY, sectionPos, new DataLayer());
+        }
+    }
+
+    /**
+     * Replace the stored light of a section with light copied from a source section.
+     * Without sky light in the copy, the sky light is left as it is.
+     */
+    public static void copySectionLight(ServerLevel level, LevelChunk chunk, SectionPos sectionPos,
+                                        LevelChunkSection section, DataLayer blockLight, @Nullable DataLayer skyLight) {
+        ThreadedLevelLightEngine lightEngine = level.getChunkSource().getLightEngine();
+
+        // The sky light sources follow the new blocks, and a section that was empty may not be tracked yet
+        chunk.initializeLightSources();
+        lightEngine.updateSectionStatus(sectionPos, section.hasOnlyAir());
+
+        lightEngine.queueSectionData(LightLayer.BLOCK, sectionPos, blockLight);
+        if (skyLight != null && level.dimensionType().hasSkyLight()) {
+            lightEngine.queueSectionData(LightLayer.SKY, sectionPos, skyLight);
+        }
+    }
+
+    /**
+     * Recheck the cells on some faces of a section, given as bits by Direction.get3DDataValue.
+     * Light from outside a copied area flows in through them, and light the copy expected from outside flows out.
+     * Returns a future that completes on the light engine's worker once the checks are done.
+     */
+    public static CompletableFuture<?> relightFaces(ServerLevel level, SectionPos sectionPos, int faces) {
+        ThreadedLevelLightEngine lightEngine = level.getChunkSource().getLightEngine();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+        for (Direction side : Direction.values()) {
+            if ((faces & 1 << side.get3DDataValue()) == 0) continue;
+            checkFace(lightEngine, sectionPos, side, false, pos);
+        }
+
+        CompletableFuture<?> done = lightEngine.waitForPendingTasks(sectionPos.x(), sectionPos.z());
+        lightEngine.tryScheduleUpdate();
+        return done;
+    }
+
+    /**
+     * Relight a chunk once, then resend it to the players tracking it.
+     * The stale sections, by section y, were rewritten without light updates: their light is thrown away
+     * and rebuilt, since lighting a chunk only ever raises light. Their faces toward the rest of the
+     * world are checked from both sides, so light flows in and light they no longer give flows out.
+     * Must be called on the server thread; the returned future completes on the server thread.
+     */
+    public static CompletableFuture<LevelChunk> relightChunk(ServerLevel level, LevelChunk chunk, IntSet staleSections) {
+        ThreadedLevelLightEngine lightEngine = level.getChunkSource().getLightEngine();
+        ChunkPos chunkPos = chunk.getPos();
+
+        // Direct section writes skip the sky light bookkeeping that setBlock does per block
+        chunk.initializeLightSources();
+
+        LevelChunkSection[] sections = chunk.getSections();
+        for (int i = 0; i < sections.length; i++) {
+            SectionPos sectionPos = SectionPos.of(chunkPos, chunk.getSectionYFromSectionIndex(i));
+            lightEngine.updateSectionStatus(sectionPos, sections[i].hasOnlyAir());
+        }
+
+        // Reset first, the face checks are queued behind the resets
+        for (int sectionY : staleSections) {
+            resetSectionLight(level, SectionPos.of(chunkPos, sectionY));
+        }
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int sectionY : staleSections) {
+            SectionPos sectionPos = SectionPos.of(chunkPos, sectionY);
+            for (Direction side : Direction.values()) {
+                // Stale neighbors in the same chunk are rebuilt by the chunk's own light sources
+                if (side.getAxis() == Direction.Axis.Y && staleSections.contains(sectionY + side.getStepY())) continue;
+                checkFace(lightEngine, sectionPos, side, true, pos);
+            }
+        }
+
+        CompletableFuture<LevelChunk> relit = lightEngine.lightChunk(chunk, false)
+            .thenApplyAsync(lit -> {
+                resendChunk(level, chunk);
+                return chunk;
+            }, level.getServer());
+        lightEngine.tryScheduleUpdate();
+        return relit;
+    }
+
+    /**
+     * Queue light checks for the cells on one face of a section, and with both sides for the cells facing them
+     */
+    private static void checkFace(ThreadedLevelLightEngine lightEngine, SectionPos sectionPos, Direction side,
+                                  boolean bothSides, BlockPos.MutableBlockPos pos) {
+        int edge = side.getAxisDirection() == Direction.AxisDirection.POSITIVE ? 15 : 0;
+        for (int a = 0; a < 16; a++) {
+            for (int b = 0; b < 16; b++) {
+                int x = side.getAxis() == Direction.Axis.X ? edge : a;
+                int y = side.getAxis() == Direction.Axis.Y ? edge : side.getAxis() == Direction.Axis.X ? a : b;
+                int z = side.getAxis() == Direction.Axis.Z ? edge : b;
+                pos.set(sectionPos.minBlockX() + x, sectionPos.minBlockY() + y, sectionPos.minBlockZ() + z);
+                lightEngine.checkBlock(pos);
+                if (bothSides) {
+                    lightEngine.checkBlock(pos.move(side));
+                }
+            }
+        }
+    }
+
+    /**
+     * Send a full chunk with its light to every player tracking it
+     */
+    public static void resendChunk(ServerLevel level, LevelChunk chunk) {
+        ClientboundLevelChunkWithLightPacket packet =
+            new ClientboundLevelChunkWithLightPacket(chunk, level.getLightEngine(), null, null);
+        for (ServerPlayer player : level.getChunkSource().chunkMap.getPlayers(chunk.getPos(), false)) {
+            player.connection.send(packet);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.craigsmods.creativeprototyper.util;
+
+import com.mojang.logging.LogUtils;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.ChunkStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Loads the chunks under a scan footprint through the chunk system instead of on demand,
+ * so the server thread never waits on chunk I/O or generation.
+ */
+public class ChunkTicketLoader {
+    private static final org.slf4j.Logger LOGGER = LogUtils.getLogger();
+
+    // Region tickets keep the chunks loaded while we wait for the rest of the footprint
+    private static final TicketType<ChunkPos> SCAN_TICKET =
+        TicketType.create("creativeprototyper_scan", Comparator.comparingLong(ChunkPos::toLong));
+
+    // Ticket distance 0 loads exactly the ticketed chunk to full status
+    private static final int TICKET_DISTANCE = 0;
+
+    /**
+     * Ticket every chunk overlapping a region around a center, wait for all of them to load,
+     * then run the action on the server thread and release the tickets.
+     * Must be called on the server thread.
+     */
+    public static CompletableFuture<Void> withLoadedArea(ServerLevel level, BlockPos center, ScanRegion region, Runnable action) {
+        return withLoadedArea(level, center, region, () -> {
+            action.run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Same as above for an action that finishes later, like a relight. The tickets are held
+     * until the future the action returns completes, and the result completes with it.
+     */
+    public static CompletableFuture<Void> withLoadedArea(ServerLevel level, BlockPos center, ScanRegion region, 
+                                                         Supplier<? extends CompletableFuture<?>> action) {
+        long startTime = System.nanoTime();
+        ServerChunkCache chunkSource = level.getChunkSource();
+        List<ChunkPos> chunks = new ArrayList<>();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+
+        int minChunkX = SectionPos.blockToSectionCoord(center.getX() + region.getMinX());
+        int maxChunkX = SectionPos.blockToSectionCoord(center.getX() + region.getMaxX());
+        int minChunkZ = SectionPos.blockToSectionCoord(center.getZ() + region.getMinZ());
+        int maxChunkZ = SectionPos.blockToSectionCoord(center.getZ() + region.getMaxZ());
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                int fromX = SectionPos.sectionToBlockCoord(chunkX) - center.getX();
+                int fromZ = SectionPos.sectionToBlockCoord(chunkZ) - center.getZ();
+                if (!region.intersectsColumns(fromX, fromZ, fromX + 15, fromZ + 15)) continue;
+
+                ChunkPos chunkPos = new ChunkPos(chunkX, chunkZ);
+                chunkSource.addRegionTicket(SCAN_TICKET, chunkPos, TICKET_DISTANCE, chunkPos);
+                chunks.add(chunkPos);
+
+                // Already loaded chunks complete straight away, the rest complete on a later tick
+                futures.add(chunkSource.getChunkFuture(chunkX, chunkZ, ChunkStatus.FULL, true));
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .<CompletableFuture<?>>handleAsync((ignored, error) -> {
+                if (error != null) {
+                    // Chunks that failed to load are skipped by the capture, same as unloaded ones
+                    LOGGER.warn("Some chunks around {} failed to load: {}", center, error.getMessage());
+                }
+                LOGGER.debug("Loaded {} chunks around {} in {} ms",
+                    chunks.size(), center, (System.nanoTime() - startTime) / 1_000_000);
+                try {
+                    return action.get();
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }, level.getServer())
+            .thenCompose(done -> CompletableFuture.allOf(done))
+            // Released on the server thread however the action ended
+            .<Void>handleAsync((ignored, error) -> {
+                for (ChunkPos chunkPos : chunks) {
+                    chunkSource.removeRegionTicket(SCAN_TICKET, chunkPos, TICKET_DISTANCE, chunkPos);
+                }
+                if (error != null) {
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                }
+                return null;
+            }, level.getServer());
+    }
+}
@@ -0,0 +1,509 @@
+package com.craigsmods.creativeprototyper.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * FIFO queue of blocks stored as packed positions (BlockPos.asLong) and block state IDs (Block.getId).
+ * Entries live in fixed-size primitive chunks, so adding and removing never allocates per block.
+ *
+ * With a memory limit, full chunks beyond the limit are spilled to a temporary file and read back
+ * one chunk at a time as the head of the queue reaches them. Call clear() to delete the file.
+ *
+ * Not thread-safe: hand the queue between threads through a volatile flag or another queue.
+ */
+public class PackedBlockQueue {
+    // Entries per chunk, 12 bytes each
+    private static final int CHUNK_SIZE = 4096;
+    private static final int CHUNK_BYTES = CHUNK_SIZE * (Long.BYTES + Integer.BYTES);
+
+    // Chunks before any spilled entries
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    // Chunks after the spilled entries, only used while something is spilled
+    private final ArrayDeque<Chunk> overflow = new ArrayDeque<>();
+    private Chunk spare;
+    private int size = 0;
+
+    // Most chunks kept in memory, 0 for no limit
+    private final int maxChunks;
+    private SpillFile spillFile;
+    private int spilledSize = 0;
+    // Entries ever added, removed ones included
+    private long added = 0L;
+
+    public PackedBlockQueue() {
+        this(0L);
+    }
+
+    /**
+     * Queue that keeps at most about maxMemoryBytes of entries in memory, 0 for no limit
+     */
+    public PackedBlockQueue(long maxMemoryBytes) {
+        // The head chunk and the chunk being written always stay in memory
+        this.maxChunks = maxMemoryBytes <= 0 ? 0 : (int) Math.max(2, Math.min(Integer.MAX_VALUE, maxMemoryBytes / CHUNK_BYTES));
+    }
+
+    /**
+     * Add a block to the end of the queue
+     */
+    public void add(long packedPos, int stateId) {
+        ArrayDeque<Chunk> target = spilledSize > 0 ? overflow : chunks;
+        Chunk tail = target.peekLast();
+        if (tail == null || tail.writeIndex == CHUNK_SIZE) {
+            if (maxChunks > 0 && chunks.size() + overflow.size() >= maxChunks) {
+                spill();
+                target = spilledSize > 0 ? overflow : chunks;
+            }
+            tail = newChunk();
+            target.addLast(tail);
+        }
+        tail.positions[tail.writeIndex] = packedPos;
+        tail.stateIds[tail.writeIndex] = stateId;
+        tail.writeIndex++;
+        size++;
+        added++;
+    }
+
+    /**
+     * Packed position of the block at the head of the queue
+     */
+    public long peekPos() {
+        Chunk head = head();
+        return head.positions[head.readIndex];
+    }
+
+    /**
+     * Block state ID of the block at the head of the queue
+     */
+    public int peekStateId() {
+        Chunk head = head();
+        return head.stateIds[head.readIndex];
+    }
+
+    /**
+     * Drop the block at the head of the queue
+     */
+    public void remove() {
+        Chunk head = head();
+        head.readIndex++;
+        size--;
+
+        // Recycle one drained chunk so steady draining and refilling does not allocate
+        if (head.readIndex == head.writeIndex && (head.writeIndex == CHUNK_SIZE || size == 0)) {
+            chunks.pollFirst();
+            head.readIndex = 0;
+            head.writeIndex = 0;
+            spare = head;
+
+            // Spilled entries come next, then whatever was written after them
+            if (chunks.isEmpty() && spilledSize > 0) {
+                unspill();
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Whether some entries currently live in the spill file
+     */
+    public boolean isSpilled() {
+        return spilledSize > 0;
+    }
+
+    /**
+     * Bytes held in memory by the queue's chunks
+     */
+    public long getMemoryBytes() {
+        return (long) (chunks.size() + overflow.size() + (spare != null ? 1 : 0)) * CHUNK_BYTES;
+    }
+
+    /**
+     * Bytes of entries currently in the spill file
+     */
+    public long getSpilledBytes() {
+        return (long) spilledSize * (Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Entries added since the queue was made, removed ones included. The entry at the head
+     * of the queue was added as number getAddedCount() - size().
+     */
+    public long getAddedCount() {
+        return added;
+    }
+
+    /**
+     * Copy every entry without changing the queue, see snapshot(long)
+     */
+    public Snapshot snapshot() {
+        return snapshot(0L);
+    }
+
+    /**
+     * Copy the entries still queued that were added as number fromAdded or later, without changing
+     * the queue. Entries in memory are copied, spilled entries are only marked by their place in the
+     * spill file and read on whichever thread reads the snapshot. The spill file only ever grows while
+     * a snapshot holds it, so the copy stays valid while the queue goes on. Release it when done.
+     */
+    public Snapshot snapshot(long fromAdded) {
+        int skip = (int) Math.max(0L, size - Math.max(0L, added - fromAdded));
+        long firstAdded = added - size + skip;
+
+        // Entries are skipped from the head, first from the chunks in memory, then the spill file
+        Chunk[] head = copyChunks(chunks, skip);
+        skip = Math.max(0, skip - countUnread(chunks));
+        int spillSkip = Math.min(skip, spilledSize);
+        skip -= spillSkip;
+        Chunk[] tail = copyChunks(overflow, skip);
+
+        if (spilledSize - spillSkip <= 0) {
+            return new Snapshot(firstAdded, head, null, 0L, 0, 0, tail);
+        }
+        // Every spilled chunk is full, see spill()
+        spillFile.retain();
+        long spillOffset = spillFile.readOffset + (long) (spillSkip / CHUNK_SIZE) * CHUNK_BYTES;
+        return new Snapshot(firstAdded, head, spillFile, spillOffset, spillSkip % CHUNK_SIZE, 
+            spilledSize - spillSkip, tail);
+    }
+
+    /**
+     * Drop every entry and delete the spill file
+     */
+    public void clear() {
+        chunks.clear();
+        overflow.clear();
+        size = 0;
+        spilledSize = 0;
+        if (spillFile != null) {
+            // Deleted once no snapshot reads it anymore
+            spillFile.release();
+            spillFile = null;
+        }
+    }
+
+    /**
+     * Copies of the unread entries of some chunks after the first skip of them, starting at index 0
+     */
+    private static Chunk[] copyChunks(ArrayDeque<Chunk> source, int skip) {
+        ArrayDeque<Chunk> copies = new ArrayDeque<>();
+        for (Chunk chunk : source) {
+            int from = chunk.readIndex + Math.min(skip, chunk.writeIndex - chunk.readIndex);
+            skip -= from - chunk.readIndex;
+            if (from == chunk.writeIndex) continue;
+
+            Chunk copy = new Chunk();
+            copy.writeIndex = chunk.writeIndex - from;
+            System.arraycopy(chunk.positions, from, copy.positions, 0, copy.writeIndex);
+            System.arraycopy(chunk.stateIds, from, copy.stateIds, 0, copy.writeIndex);
+            copies.add(copy);
+        }
+        return copies.toArray(new Chunk[0]);
+    }
+
+    private static int countUnread(ArrayDeque<Chunk> source) {
+        int unread = 0;
+        for (Chunk chunk : source) {
+            unread += chunk.writeIndex - chunk.readIndex;
+        }
+        return unread;
+    }
+
+    private Chunk head() {
+        Chunk head = chunks.peekFirst();
+        if (head == null || head.readIndex == head.writeIndex) {
+            throw new NoSuchElementException();
+        }
+        return head;
+    }
+
+    private Chunk newChunk() {
+        if (spare != null) {
+            Chunk chunk = spare;
+            spare = null;
+            return chunk;
+        }
+        return new Chunk();
+    }
+
+    /**
+     * Move the full chunks between the head and the spill file to disk.
+     * The head chunk stays so peeking never has to wait on the file.
+     */
+    private void spill() {
+        ArrayDeque<Chunk> source = spilledSize > 0 ? overflow : chunks;
+        int keep = source == chunks ? 1 : 0;
+        if (source.size() <= keep) {
+            return;
+        }
+
+        if (spillFile == null) {
+            spillFile = new SpillFile();
+        }
+
+        // Only called when the tail is full, so every spilled chunk is full and unread
+        Chunk head = keep == 1 ? source.pollFirst() : null;
+        for (Chunk chunk : source) {
+            spillFile.write(chunk);
+            spilledSize += CHUNK_SIZE;
+        }
+        source.clear();
+        if (head != null) {
+            source.addFirst(head);
+        }
+    }
+
+    /**
+     * Read the next spilled chunk back into memory
+     */
+    private void unspill() {
+        Chunk chunk = newChunk();
+        spillFile.read(chunk);
+        chunks.addLast(chunk);
+        spilledSize -= chunk.writeIndex;
+
+        // Everything written after the spill is next in line once the file is drained
+        if (spilledSize == 0) {
+            chunks.addAll(overflow);
+            overflow.clear();
+            if (spillFile.isShared()) {
+                // A snapshot still reads the file, so it is left to that and the next spill starts a new one
+                spillFile.release();
+                spillFile = null;
+            } else {
+                spillFile.reset();
+            }
+        }
+    }
+
+    /**
+     * Copy of a queue's entries in queue order: the chunks before the spilled entries,
+     * the spilled entries' place in the spill file, then the chunks written after them
+     */
+    public static class Snapshot {
+        private final long firstAdded;
+        private final Chunk[] head;
+        @Nullable
+        private SpillFile spilled;
+        private final long spillOffset;
+        // Entries of the first spilled chunk that are not part of the snapshot
+        private final int spillSkip;
+        private final int spilledSize;
+        private final Chunk[] tail;
+
+        Snapshot(long firstAdded, Chunk[] head, @Nullable SpillFile spilled, long spillOffset, int spillSkip, 
+                 int spilledSize, Chunk[] tail) {
+            this.firstAdded = firstAdded;
+            this.head = head;
+            this.spilled = spilled;
+            this.spillOffset = spillOffset;
+            this.spillSkip = spillSkip;
+            this.spilledSize = spilledSize;
+            this.tail = tail;
+        }
+
+        /**
+         * Number of the first entry in the queue's getAddedCount() order
+         */
+        public long getFirstAdded() {
+            return firstAdded;
+        }
+
+        public int size() {
+            int size = spilledSize;
+            for (Chunk chunk : head) size += chunk.writeIndex;
+            for (Chunk chunk : tail) size += chunk.writeIndex;
+            return size;
+        }
+
+        /**
+         * Hand every entry to the consumer a chunk at a time, head first, reading spilled entries
+         * back from disk one chunk at a time. The arrays are reused between calls.
+         */
+        public void forEachChunk(ChunkConsumer consumer) throws IOException {
+            for (Chunk chunk : head) {
+                consumer.accept(chunk.positions, chunk.stateIds, chunk.writeIndex);
+            }
+            if (spilled != null) {
+                Chunk chunk = new Chunk();
+                ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES);
+                long offset = spillOffset;
+                int skip = spillSkip;
+                for (int read = 0; read < spilledSize; offset += CHUNK_BYTES) {
+                    spilled.read(chunk, offset, buffer);
+                    int count = Math.min(CHUNK_SIZE - skip, spilledSize - read);
+                    if (skip > 0) {
+                        System.arraycopy(chunk.positions, skip, chunk.positions, 0, count);
+                        System.arraycopy(chunk.stateIds, skip, chunk.stateIds, 0, count);
+                        skip = 0;
+                    }
+                    consumer.accept(chunk.positions, chunk.stateIds, count);
+                    read += count;
+                }
+            }
+            for (Chunk chunk : tail) {
+                consumer.accept(chunk.positions, chunk.stateIds, chunk.writeIndex);
+            }
+        }
+
+        /**
+         * Let go of the spill file, deleting it if the queue is done with it too
+         */
+        public void release() {
+            if (spilled != null) {
+                spilled.release();
+                spilled = null;
+            }
+        }
+    }
+
+    /**
+     * Receives a snapshot's entries, count entries from index 0 of each array
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(long[] positions, int[] stateIds, int count) throws IOException;
+    }
+
+    /**
+     * One fixed-size block of entries
+     */
+    private static class Chunk {
+        final long[] positions = new long[CHUNK_SIZE];
+        final int[] stateIds = new int[CHUNK_SIZE];
+        int readIndex = 0;
+        int writeIndex = 0;
+    }
+
+    /**
+     * Temporary file holding spilled chunks back to back, read in the order they were written.
+     * Chunks are only appended until every one has been read back, and snapshots read it on their
+     * own threads, so the file is shared: it is only truncated while nothing else reads it, and
+     * deleted once the queue and every snapshot have let go of it.
+     */
+    private static class SpillFile {
+        private final File file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        private long readOffset = 0L;
+        private long writeOffset = 0L;
+        // The queue and every snapshot still reading the file
+        private int users = 1;
+
+        SpillFile() {
+            this.file = createTempFile("creativeprototyper-scan");
+            try {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                file.delete();
+                throw new UncheckedIOException("Could not open scan spill file", e);
+            }
+        }
+
+        private static File createTempFile(String prefix) {
+            try {
+                File file = File.createTempFile(prefix, ".bin");
+                file.deleteOnExit();
+                return file;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create scan spill file", e);
+            }
+        }
+
+        synchronized void retain() {
+            users++;
+        }
+
+        synchronized boolean isShared() {
+            return users > 1;
+        }
+
+        /**
+         * Let go of the file, closing and deleting it once nothing uses it anymore
+         */
+        synchronized void release() {
+            if (--users == 0) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                file.delete();
+            }
+        }
+
+        void write(Chunk chunk) {
+            buffer.clear();
+            buffer.asLongBuffer().put(chunk.positions);
+            buffer.position(CHUNK_SIZE * Long.BYTES);
+            buffer.asIntBuffer().put(chunk.stateIds);
+            buffer.clear();
+            try {
+                while (buffer.hasRemaining()) {
+                    writeOffset += channel.write(buffer, writeOffset);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write scan spill file", e);
+            }
+        }
+
+        /**
+         * Read the next chunk back, on the queue's thread
+         */
+        void read(Chunk chunk) {
+            read(chunk, readOffset, buffer);
+            readOffset += CHUNK_BYTES;
+        }
+
+        /**
+         * Read the full chunk at offset. Positional reads don't move the channel, so snapshots
+         * read with buffers of their own while the queue goes on appending.
+         */
+        void read(Chunk chunk, long offset, ByteBuffer buffer) {
+            buffer.clear();
+            try {
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, offset + buffer.position());
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of spill file");
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read scan spill file", e);
+            }
+            buffer.clear();
+            buffer.asLongBuffer().get(chunk.positions);
+            buffer.position(CHUNK_SIZE * Long.BYTES);
+            buffer.asIntBuffer().get(chunk.stateIds);
+            chunk.readIndex = 0;
+            chunk.writeIndex = CHUNK_SIZE;
+        }
+
+        /**
+         * Start over at the beginning once every spilled chunk has been read back.
+         * Only called while no snapshot reads the file.
+         */
+        void reset() {
+            readOffset = 0L;
+            writeOffset = 0L;
+            try {
+                channel.truncate(0L);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not truncate scan spill file", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package com.craigsmods.creativeprototyper.util;
+
+import com.craigsmods.creativeprototyper.registry.ModBlocks;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.Holder;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.PalettedContainer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Scans an area one 16x16x16 chunk section at a time on a shared thread pool
+ */
+public class ParallelSectionScanner {
+    // Leave one core for the server thread
+    private static final int SCAN_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    // Tasks run in the order they were submitted, so concurrent scans take turns a batch at a time
+    private static final ExecutorService SCAN_POOL = Executors.newFixedThreadPool(SCAN_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "CreativePrototyper-Scan-" + THREAD_COUNT.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Number of sections a task scans before it goes to the back of the line
+    private static final int SECTIONS_PER_TASK = 4;
+
+    // Multiplier for the per-section content hash
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    // Bits of one 64-cell word on the x = 0 and x = 15 faces, cells are indexed y << 8 | z << 4 | x
+    private static final long X_MIN_CELLS = 0x0001000100010001L;
+    private static final long X_MAX_CELLS = 0x8000800080008000L;
+
+    /**
+     * Start scanning all sections in parallel and hand each section's result to the sink as soon as it is done.
+     * The sink is called from the scan threads, in no particular order, and must not block.
+     *
+     * A section is only scanned while the sink has room for it. The scan starts with room for queueCapacity
+     * sections and gets more as the caller reports results taken, see SectionCursor.sectionsTaken.
+     * Without room the scan parks its cursor and gives its threads back to the pool, so a scan nobody
+     * drains holds no thread and never keeps other scans waiting.
+     *
+     * Blocks with block entities are hashed but never yielded, they come from the capture's block entity list.
+     *
+     * When the content hashes of a previous scan are given, sections whose hash is unchanged
+     * yield nothing, and changed sections also yield their air blocks so anything
+     * removed in the source gets cleared. Sections that are only air yield nothing on a full scan.
+     *
+     * When a shell filler is given, blocks without block entities whose six neighbors are all opaque
+     * are replaced by the filler, or left out if the filler is air. Neighbors outside the capture count as open.
+     *
+     * When sections may be cloned, a changed section that lies entirely inside the region yields a copy of its
+     * containers and captured light instead of its blocks. Only for builds aligned to the section grid, and never with a shell filler.
+     */
+    public static SectionCursor scan(AreaCapture capture, @Nullable Long2LongMap previousHashes, @Nullable BlockState shellFiller,
+                                     boolean cloneSections, int queueCapacity, BooleanSupplier cancelled, 
+                                     Consumer<SectionResult> sink) {
+        ScanContext context = new ScanContext(capture, previousHashes, shellFiller, cloneSections, cancelled, sink);
+        SectionCursor cursor = new SectionCursor(capture.getSections(), context, queueCapacity);
+        cursor.wake();
+        return cursor;
+    }
+
+    /**
+     * Scan a single captured section, reading its palette directly.
+     * Only cells below each column's top are visited, everything above is known to be air.
+     */
+    private static SectionResult scanSection(AreaCapture.SectionSnapshot source, ScanContext context) {
+        SectionResult result = new SectionResult(source.pos);
+        PalettedContainer<BlockState> states = source.states;
+        BlockPos center = context.center;
+        ScanRegion region = context.region;
+        long hash = 0L;
+
+        int originX = source.pos.minBlockX();
+        int originY = source.pos.minBlockY();
+        int originZ = source.pos.minBlockZ();
+
+        // Intersect the section with the region's bounding box
+        int minX = Math.max(center.getX() + region.getMinX(), originX) - originX;
+        int maxX = Math.min(center.getX() + region.getMaxX(), originX + 15) - originX;
+        int minY = Math.max(center.getY() + region.getMinY(), originY) - originY;
+        int maxY = Math.min(center.getY() + region.getMaxY(), originY + 15) - originY;
+        int minZ = Math.max(center.getZ() + region.getMinZ(), originZ) - originZ;
+        int maxZ = Math.min(center.getZ() + region.getMaxZ(), originZ + 15) - originZ;
+
+        // Opaque cells of the section, only tracked for shell scans
+        long[] opaque = context.shellFiller != null ? new long[64] : null;
+
+        // Columns outside the region get no height at all, so they are never visited
+        int[] columnTops = new int[16 * 16];
+        int highestTop = Integer.MIN_VALUE;
+        int insideColumns = 0;
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = minX; x <= maxX; x++) {
+                int column = z * 16 + x;
+                if (region.containsColumn(originX + x - center.getX(), originZ + z - center.getZ())) {
+                    columnTops[column] = source.columnTops[column];
+                    insideColumns++;
+                } else {
+                    columnTops[column] = Integer.MIN_VALUE;
+                }
+                highestTop = Math.max(highestTop, columnTops[column]);
+            }
+        }
+
+        // A section entirely inside the region can go over whole, unless it holds something that is never copied
+        boolean whole = context.cloneSections && states != null && context.shellFiller == null
+            && insideColumns == 16 * 16 && minY == 0 && maxY == 15
+            && !states.maybeHas(state -> isNeverCopied(state, context.classes));
+        int wholeBlocks = 0;
+
+        if (states != null) {
+            // Nothing to visit above the tallest column in range
+            int topY = highestTop == Integer.MIN_VALUE ? minY - 1 : Math.min(maxY, highestTop - 1 - originY);
+
+            // Neighboring cells usually share a state, so the ID and flags are only looked up when it changes
+            byte[] classes = context.classes;
+            BlockState lastState = null;
+            int stateId = 0;
+            byte flags = 0;
+
+            // y/z/x order matches the container's storage layout
+            for (int y = minY; y <= topY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    for (int x = minX; x <= maxX; x++) {
+                        if (originY + y >= columnTops[z * 16 + x]) continue;
+
+                        BlockState state = states.get(x, y, z);
+                        if (state != lastState) {
+                            lastState = state;
+                            stateId = Block.getId(state);
+                            flags = classes[stateId];
+                        }
+                        if ((flags & BlockClassification.AIR) != 0) continue;
+
+                        int index = y << 8 | z << 4 | x;
+                        if (opaque != null && (flags & BlockClassification.OPAQUE) != 0) {
+                            opaque[index >>> 6] |= 1L << index;
+                        }
+
+                        hash += cellHash(index, stateId);
+                        if ((flags & BlockClassification.BLOCK_ENTITY) != 0) continue;
+
+                        // Only counted, the copy carries the block
+                        if (whole) {
+                            wholeBlocks++;
+                            continue;
+                        }
+
+                        result.add(
+                            BlockPos.asLong(originX + x - center.getX(), originY + y - center.getY(), originZ + z - center.getZ()),
+                            stateId
+                        );
+                    }
+                }
+            }
+        }
+
+        // A shell scan places something else than a full one, so switching modes must not look unchanged
+        if (context.shellFiller != null) {
+            hash += cellHash(4096, context.fillerId);
+        }
+        result.hash = hash;
+
+        // The hash covers the whole section, the shell only changes what gets placed
+        long[] enclosed = null;
+        if (opaque != null && states != null) {
+            enclosed = findEnclosed(source, opaque, context);
+            result.replaceEnclosed(enclosed, context.classes, center, originX, originY, originZ,
+                                   context.fillerId, context.shellFiller.isAir());
+        }
+
+        long sectionKey = source.pos.asLong();
+        if (context.previousHashes != null && context.previousHashes.containsKey(sectionKey)
+                && context.previousHashes.get(sectionKey) == hash) {
+            // An unchanged section is left as it is, only its block entities are copied again
+            result.markUnchanged();
+        } else if (whole) {
+            // The copy is installed in the creative dimension, so it must not share the capture's container.
+            // The captured biomes and light belong to this section alone and are handed over as they are.
+            result.setClone(states.copy(), source.biomes, source.blockLight, source.skyLight, wholeBlocks);
+        } else if (context.previousHashes != null) {
+            // A changed section is replaced cell by cell, air included, so removed blocks get cleared
+            addEveryCell(result, states, enclosed, context.classes, context.fillerId, center, columnTops,
+                         originX, originY, originZ, minX, maxX, minY, maxY, minZ, maxZ);
+        }
+
+        return result;
+    }
+
+    /**
+     * Blocks that keep a section from being cloned: banned blocks are left out and tables are never copied
+     */
+    private static boolean isNeverCopied(BlockState state, byte[] classes) {
+        return (classes[Block.getId(state)] & BlockClassification.BANNED) != 0
+            || state.is(ModBlocks.CREATIVE_TABLE.get());
+    }
+
+    /**
+     * Replace a result's blocks with every cell of the section inside the region,
+     * with enclosed cells of a shell scan set to the filler
+     */
+    private static void addEveryCell(SectionResult result, @Nullable PalettedContainer<BlockState> states,
+                                     @Nullable long[] enclosed, byte[] classes, int fillerId,
+                                     BlockPos center, int[] columnTops, int originX, int originY, int originZ,
+                                     int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+        int airId = Block.getId(Blocks.AIR.defaultBlockState());
+        result.size = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (columnTops[z * 16 + x] == Integer.MIN_VALUE) continue;
+
+                    int stateId = airId;
+                    if (states != null) {
+                        stateId = Block.getId(states.get(x, y, z));
+                        if ((classes[stateId] & BlockClassification.BLOCK_ENTITY) != 0) continue;
+
+                        int index = y << 8 | z << 4 | x;
+                        if (enclosed != null && (enclosed[index >>> 6] & 1L << index) != 0
+                                && (classes[stateId] & BlockClassification.FILLER_ELIGIBLE) != 0) {
+                            stateId = fillerId;
+                        }
+                    }
+
+                    result.add(
+                        BlockPos.asLong(originX + x - center.getX(), originY + y - center.getY(), originZ + z - center.getZ()),
+                        stateId
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Cells of a section whose six neighbors are all opaque, as a 4096-bit mask.
+     * Each direction shifts the opaque mask by one cell, with the cells on that face taken from the neighbor section.
+     */
+    private static long[] findEnclosed(AreaCapture.SectionSnapshot source, long[] opaque, ScanContext context) {
+        long[] enclosed = opaque.clone();
+        for (Direction side : Direction.values()) {
+            int stride = side.getAxis() == Direction.Axis.X ? 1 : side.getAxis() == Direction.Axis.Z ? 16 : 256;
+            long[] neighbors = side.getAxisDirection() == Direction.AxisDirection.POSITIVE
+                ? shiftDown(opaque, stride) : shiftUp(opaque, stride);
+            long[] face = faceMask(source, side, context);
+
+            for (int w = 0; w < 64; w++) {
+                enclosed[w] &= (neighbors[w] & ~faceCells(side, w)) | face[w];
+            }
+        }
+        return enclosed;
+    }
+
+    /**
+     * Cells on one face of a section that touch an opaque cell of the neighboring section
+     */
+    private static long[] faceMask(AreaCapture.SectionSnapshot source, Direction side, ScanContext context) {
+        long[] face = new long[64];
+        SectionPos pos = source.pos;
+        AreaCapture.SectionSnapshot neighbor = context.capture.getSection(
+            SectionPos.asLong(pos.x() + side.getStepX(), pos.y() + side.getStepY(), pos.z() + side.getStepZ()));
+        if (neighbor == null || neighbor.states == null) {
+            return face;
+        }
+
+        BlockPos center = context.center;
+        int edge = side.getAxisDirection() == Direction.AxisDirection.POSITIVE ? 15 : 0;
+        for (int a = 0; a < 16; a++) {
+            for (int b = 0; b < 16; b++) {
+                int x = side.getAxis() == Direction.Axis.X ? edge : a;
+                int y = side.getAxis() == Direction.Axis.Y ? edge : side.getAxis() == Direction.Axis.X ? a : b;
+                int z = side.getAxis() == Direction.Axis.Z ? edge : b;
+                int nx = (x + side.getStepX()) & 15;
+                int ny = (y + side.getStepY()) & 15;
+                int nz = (z + side.getStepZ()) & 15;
+
+                // Neighbors outside the region are not copied, so they are open in the build
+                if (!context.region.contains(neighbor.pos.minBlockX() + nx - center.getX(),
+                                             neighbor.pos.minBlockY() + ny - center.getY(),
+                                             neighbor.pos.minBlockZ() + nz - center.getZ())) continue;
+
+                int stateId = Block.getId(neighbor.states.get(nx, ny, nz));
+                if ((context.classes[stateId] & BlockClassification.OPAQUE) != 0) {
+                    int index = y << 8 | z << 4 | x;
+                    face[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+        return face;
+    }
+
+    /**
+     * Bits of one mask word that lie on the given face of the section
+     */
+    static long faceCells(Direction side, int word) {
+        return switch (side) {
+            case EAST -> X_MAX_CELLS;
+            case WEST -> X_MIN_CELLS;
+            case SOUTH -> (word & 3) == 3 ? 0xFFFF000000000000L : 0L;
+            case NORTH -> (word & 3) == 0 ? 0x000000000000FFFFL : 0L;
+            case UP -> word >= 60 ? -1L : 0L;
+            case DOWN -> word < 4 ? -1L : 0L;
+        };
+    }
+
+    /**
+     * Mask where bit c is bit c + n of the source
+     */
+    static long[] shiftDown(long[] bits, int n) {
+        int words = n >>> 6;
+        int shift = n & 63;
+        long[] result = new long[64];
+        for (int w = 0; w + words < 64; w++) {
+            int from = w + words;
+            long value = bits[from] >>> shift;
+            if (shift != 0 && from + 1 < 64) {
+                value |= bits[from + 1] << (64 - shift);
+            }
+            result[w] = value;
+        }
+        return result;
+    }
+
+    /**
+     * Mask where bit c is bit c - n of the source
+     */
+    static long[] shiftUp(long[] bits, int n) {
+        int words = n >>> 6;
+        int shift = n & 63;
+        long[] result = new long[64];
+        for (int w = words; w < 64; w++) {
+            int from = w - words;
+            long value = bits[from] << shift;
+            if (shift != 0 && from > 0) {
+                value |= bits[from - 1] >>> (64 - shift);
+            }
+            result[w] = value;
+        }
+        return result;
+    }
+
+    /**
+     * Hash of one non-air cell. Section hashes are the sum of their cell hashes,
+     * so air contributes nothing and skipped cells don't change the result.
+     */
+    private static long cellHash(int index, int stateId) {
+        long hash = ((long) index << 32 | (stateId & 0xFFFFFFFFL)) * HASH_MULTIPLIER;
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Where one scan is in its section list. Up to one task per scan thread claims sections from it,
+     * a few at a time, while the sink has room, then goes to the back of the pool's line.
+     */
+    public static class SectionCursor {
+        private final List<AreaCapture.SectionSnapshot> sections;
+        private final ScanContext context;
+        private final AtomicInteger nextSection = new AtomicInteger();
+        private final AtomicInteger handedOver = new AtomicInteger();
+        private final AtomicInteger tasks = new AtomicInteger();
+        // Sections the sink can still take
+        private final Semaphore room;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+        SectionCursor(List<AreaCapture.SectionSnapshot> sections, ScanContext context, int queueCapacity) {
+            this.sections = sections;
+            this.context = context;
+            this.room = new Semaphore(queueCapacity);
+            if (sections.isEmpty()) {
+                finished.complete(null);
+            }
+        }
+
+        /**
+         * Give back room for results the caller took from the sink, and carry on if the scan was parked.
+         * Safe to call from any thread.
+         */
+        public void sectionsTaken(int count) {
+            if (count > 0) {
+                room.release(count);
+                wake();
+            }
+        }
+
+        /**
+         * Completes once every section was handed to the sink, or exceptionally if scanning one failed.
+         * A cancelled scan never completes it.
+         */
+        public CompletableFuture<Void> getFinished() {
+            return finished;
+        }
+
+        private boolean hasWork() {
+            return !finished.isDone() && !context.cancelled.getAsBoolean()
+                && nextSection.get() < sections.size() && room.availablePermits() > 0;
+        }
+
+        /**
+         * Submit tasks until there is one per scan thread or nothing left to claim
+         */
+        private void wake() {
+            while (hasWork()) {
+                int running = tasks.get();
+                if (running >= SCAN_THREADS) {
+                    return;
+                }
+                if (tasks.compareAndSet(running, running + 1)) {
+                    SCAN_POOL.execute(this::scanBatch);
+                }
+            }
+        }
+
+        private void scanBatch() {
+            try {
+                for (int scanned = 0; scanned < SECTIONS_PER_TASK; scanned++) {
+                    if (context.cancelled.getAsBoolean() || !room.tryAcquire()) break;
+
+                    int index = nextSection.getAndIncrement();
+                    if (index >= sections.size()) {
+                        room.release();
+                        break;
+                    }
+                    context.sink.accept(scanSection(sections.get(index), context));
+                    if (handedOver.incrementAndGet() == sections.size()) {
+                        finished.complete(null);
+                    }
+                }
+            } catch (Throwable e) {
+                // Errors too, a section that is never handed over would keep the scan waiting forever
+                finished.completeExceptionally(e);
+            } finally {
+                // Back of the line behind the other scans, or parked until the sink has room again
+                tasks.decrementAndGet();
+                wake();
+            }
+        }
+    }
+
+    /**
+     * Settings shared by every task of one scan
+     */
+    private static class ScanContext {
+        final AreaCapture capture;
+        final BlockPos center;
+        final ScanRegion region;
+        @Nullable
+        final Long2LongMap previousHashes;
+        @Nullable
+        final BlockState shellFiller;
+        final int fillerId;
+        final boolean cloneSections;
+        final byte[] classes;
+        final BooleanSupplier cancelled;
+        final Consumer<SectionResult> sink;
+
+        ScanContext(AreaCapture capture, @Nullable Long2LongMap previousHashes, @Nullable BlockState shellFiller,
+                    boolean cloneSections, BooleanSupplier cancelled, Consumer<SectionResult> sink) {
+            this.capture = capture;
+            this.center = capture.getCenter();
+            this.region = capture.getRegion();
+            this.previousHashes = previousHashes;
+            this.shellFiller = shellFiller;
+            this.fillerId = shellFiller != null ? Block.getId(shellFiller) : 0;
+            this.cloneSections = cloneSections;
+            this.classes = BlockClassification.getTable();
+            this.cancelled = cancelled;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * Non-air blocks found in one section, stored as packed relative positions and block state IDs,
+     * or a copy of the whole section
+     */
+    public static class SectionResult {
+        final SectionPos pos;
+        long[] positions = new long[256];
+        int[] stateIds = new int[256];
+        int size = 0;
+        long hash;
+        boolean unchanged = false;
+        // Set instead of the blocks when the section is copied whole
+        @Nullable
+        PalettedContainer<BlockState> clonedStates;
+        @Nullable
+        PalettedContainer<Holder<Biome>> clonedBiomes;
+        // Captured light of the copy, null when it has to be relit
+        @Nullable
+        DataLayer clonedBlockLight;
+        @Nullable
+        DataLayer clonedSkyLight;
+        // Non-air blocks without block entities in the copy, for progress
+        int clonedBlocks = 0;
+
+        SectionResult(SectionPos pos) {
+            this.pos = pos;
+        }
+
+        void add(long relativePos, int stateId) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                stateIds = Arrays.copyOf(stateIds, size * 2);
+            }
+            positions[size] = relativePos;
+            stateIds[size] = stateId;
+            size++;
+        }
+
+        /**
+         * Replace enclosed blocks without block entities by the filler, or drop them if it is air
+         */
+        void replaceEnclosed(long[] enclosed, byte[] classes, BlockPos center, int originX, int originY, int originZ,
+                             int fillerId, boolean dropFiller) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                long relativePos = positions[i];
+                int x = BlockPos.getX(relativePos) + center.getX() - originX;
+                int y = BlockPos.getY(relativePos) + center.getY() - originY;
+                int z = BlockPos.getZ(relativePos) + center.getZ() - originZ;
+                int index = y << 8 | z << 4 | x;
+
+                int stateId = stateIds[i];
+                if ((enclosed[index >>> 6] & 1L << index) != 0 && (classes[stateId] & BlockClassification.FILLER_ELIGIBLE) != 0) {
+                    if (dropFiller) continue;
+                    stateId = fillerId;
+                }
+                positions[kept] = relativePos;
+                stateIds[kept] = stateId;
+                kept++;
+            }
+            size = kept;
+        }
+
+        void setClone(PalettedContainer<BlockState> states, @Nullable PalettedContainer<Holder<Biome>> biomes,
+                      @Nullable DataLayer blockLight, @Nullable DataLayer skyLight, int blocks) {
+            size = 0;
+            clonedStates = states;
+            clonedBiomes = biomes;
+            clonedBlockLight = blockLight;
+            clonedSkyLight = skyLight;
+            clonedBlocks = blocks;
+        }
+
+        /**
+         * Drop every block and mark the section as unchanged
+         */
+        void markUnchanged() {
+            size = 0;
+            unchanged = true;
+        }
+    }
+}
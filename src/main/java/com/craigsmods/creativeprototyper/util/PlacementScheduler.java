@@ -0,0 +1,140 @@
+package com.craigsmods.creativeprototyper.util;
+
+import com.craigsmods.creativeprototyper.config.CreativePrototyperConfig;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides how much of each server tick can be spent placing blocks.
+ * The budget is the headroom between the server's recent tick time and a target tick time,
+ * so builds slow down when the server is busy and speed up when it is idle.
+ * The budget is a hard ceiling for the whole tick and is shared between all active scans.
+ */
+public class PlacementScheduler {
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    // Same window as MinecraftServer.tickTimes, so our own work can be subtracted from its average
+    private static final int WINDOW = 100;
+    private static final long[] placementNanos = new long[WINDOW];
+
+    // Share of the budget an operator's scan gets under OPS_FIRST, relative to other scans
+    private static final int OP_WEIGHT = 4;
+
+    // Placement cost assumed until a build has been measured
+    private static final double DEFAULT_NANOS_PER_BLOCK = 2_000.0;
+    // Weight of the newest tick in the smoothed placement cost
+    private static final double RATE_SMOOTHING = 0.05;
+    private static double nanosPerBlock = DEFAULT_NANOS_PER_BLOCK;
+
+    // Rotates which scan goes first, so the same scan is not always the one left with nothing
+    private static int rotation = 0;
+
+    /**
+     * How scans are prioritized when they share the tick budget
+     */
+    public enum Policy {
+        // Equal shares, taking turns at going first
+        ROUND_ROBIN,
+        // Operators go first and get a larger share
+        OPS_FIRST,
+        // Scans with the least work left go first, so small builds finish quickly
+        SMALLEST_FIRST
+    }
+
+    /**
+     * Nanoseconds that may be spent placing blocks this tick
+     */
+    public static long getTickBudgetNanos(MinecraftServer server) {
+        long targetNanos = CreativePrototyperConfig.COMMON.targetTickMillis.get() * NANOS_PER_MILLI;
+        long minimumNanos = CreativePrototyperConfig.COMMON.minPlacementMillis.get() * NANOS_PER_MILLI;
+
+        // Server load without the time we spent placing blocks ourselves
+        long baseTickNanos = Math.max(0L, averageOf(server.tickTimes) - averageOf(placementNanos));
+
+        return Math.max(minimumNanos, targetNanos - baseTickNanos);
+    }
+
+    /**
+     * Record how long placement took this tick and how many blocks it placed
+     */
+    public static void recordPlacementTime(MinecraftServer server, long nanos, int placedBlocks) {
+        placementNanos[server.getTickCount() % WINDOW] = nanos;
+        if (placedBlocks > 0) {
+            nanosPerBlock += (nanos / (double) placedBlocks - nanosPerBlock) * RATE_SMOOTHING;
+        }
+    }
+
+    /**
+     * Record a tick without any scans, so placement time of finished builds ages out of the window
+     * like it does from the server's tick times
+     */
+    public static void recordIdleTick(MinecraftServer server) {
+        placementNanos[server.getTickCount() % WINDOW] = 0L;
+    }
+
+    /**
+     * Ticks it would take to place a number of blocks at the current rate and tick budget,
+     * sharing the budget with the builds that are already running
+     */
+    public static long estimateTicks(MinecraftServer server, long blocks, int runningScans) {
+        double budgetBlocks = getTickBudgetNanos(server) / nanosPerBlock / (runningScans + 1);
+        double blocksPerTick = Math.max(budgetBlocks, 
+            CreativePrototyperConfig.COMMON.blocksPerTick.get() / (double) (runningScans + 1));
+        return (long) Math.ceil(blocks / blocksPerTick);
+    }
+
+    /**
+     * Order the scans for this tick: round-robin first, then stably sorted by the configured policy
+     */
+    static List<AsyncAreaScanner.ScanData> orderScans(List<AsyncAreaScanner.ScanData> scans) {
+        List<AsyncAreaScanner.ScanData> ordered = new ArrayList<>(scans);
+        if (ordered.size() < 2) {
+            return ordered;
+        }
+
+        // Start from a stable order so the rotation is meaningful between ticks
+        ordered.sort(Comparator.comparing(scan -> scan.playerId));
+        Collections.rotate(ordered, -(rotation++ % ordered.size()));
+
+        switch (CreativePrototyperConfig.COMMON.schedulingPolicy.get()) {
+            case OPS_FIRST -> ordered.sort(Comparator.comparing(scan -> !isOperator(scan)));
+            case SMALLEST_FIRST -> ordered.sort(Comparator.comparingInt(PlacementScheduler::getRemainingWork));
+            default -> { }
+        }
+        return ordered;
+    }
+
+    /**
+     * Relative share of the tick budget for a scan
+     */
+    static int getWeight(AsyncAreaScanner.ScanData scan) {
+        if (CreativePrototyperConfig.COMMON.schedulingPolicy.get() == Policy.OPS_FIRST && isOperator(scan)) {
+            return OP_WEIGHT;
+        }
+        return 1;
+    }
+
+    private static boolean isOperator(AsyncAreaScanner.ScanData scan) {
+        ServerPlayer player = scan.getPlayer();
+        return player != null && player.hasPermissions(2);
+    }
+
+    private static int getRemainingWork(AsyncAreaScanner.ScanData scan) {
+        return scan.pendingBlocks.size() + scan.attachedBlocks.size() + scan.pairedBlocks.size() 
+            + scan.blockEntityPositions.size();
+    }
+
+    private static long averageOf(long[] values) {
+        long total = 0L;
+        for (long value : values) {
+            total += value;
+        }
+        return total / values.length;
+    }
+}
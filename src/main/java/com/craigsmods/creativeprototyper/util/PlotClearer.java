@@ -0,0 +1,152 @@
+package com.craigsmods.creativeprototyper.util;
+
+import com.mojang.logging.LogUtils;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ThreadedLevelLightEngine;
+import net.minecraft.world.entity.ai.village.poi.PoiTypes;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.lighting.LightEngine;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Clears a build region in the creative dimension by resetting whole chunk sections to air
+ */
+public class PlotClearer {
+    private static final org.slf4j.Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * Clear the bounding box of a region around a center. Sections fully inside the box are swapped
+     * for empty ones, sections on the edge are cleared block by block. Each touched chunk is then
+     * relit and resent once. Must be called on the server thread.
+     */
+    public static CompletableFuture<Void> clearRegion(ServerLevel level, BlockPos center, ScanRegion region) {
+        long startTime = System.nanoTime();
+        int minX = center.getX() + region.getMinX(), maxX = center.getX() + region.getMaxX();
+        int minY = Math.max(level.getMinBuildHeight(), center.getY() + region.getMinY());
+        int maxY = Math.min(level.getMaxBuildHeight() - 1, center.getY() + region.getMaxY());
+        int minZ = center.getZ() + region.getMinZ(), maxZ = center.getZ() + region.getMaxZ();
+
+        List<CompletableFuture<LevelChunk>> relights = new ArrayList<>();
+        int clearedSections = 0;
+
+        for (int chunkX = SectionPos.blockToSectionCoord(minX); chunkX <= SectionPos.blockToSectionCoord(maxX); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(minZ); chunkZ <= SectionPos.blockToSectionCoord(maxZ); chunkZ++) {
+                LevelChunk chunk = level.getChunk(chunkX, chunkZ);
+                boolean changed = false;
+                // Swapped sections lose their light, the relight rebuilds it
+                IntSet emptiedSections = new IntOpenHashSet();
+
+                for (int sectionY = SectionPos.blockToSectionCoord(minY); sectionY <= SectionPos.blockToSectionCoord(maxY); sectionY++) {
+                    int sectionIndex = chunk.getSectionIndexFromSectionY(sectionY);
+                    LevelChunkSection section = chunk.getSection(sectionIndex);
+                    if (section.hasOnlyAir()) continue;
+
+                    SectionPos sectionPos = SectionPos.of(chunkX, sectionY, chunkZ);
+                    clearSectionContents(level, chunk, section, sectionPos, minX, maxX, minY, maxY, minZ, maxZ);
+
+                    if (isInside(sectionPos, minX, maxX, minY, maxY, minZ, maxZ)) {
+                        // The whole section goes, so replace it instead of writing 4096 air blocks
+                        PalettedContainer<BlockState> empty = new PalettedContainer<>(
+                            Block.BLOCK_STATE_REGISTRY, Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
+                        chunk.getSections()[sectionIndex] = new LevelChunkSection(empty, section.getBiomes());
+                        emptiedSections.add(sectionY);
+                    }
+
+                    changed = true;
+                    clearedSections++;
+                }
+
+                if (!changed) continue;
+
+                // Fix up the chunk once: heightmaps, then one relight and resend
+                EnumSet<Heightmap.Types> types = EnumSet.noneOf(Heightmap.Types.class);
+                for (Map.Entry<Heightmap.Types, Heightmap> entry : chunk.getHeightmaps()) {
+                    types.add(entry.getKey());
+                }
+                if (!types.isEmpty()) {
+                    Heightmap.primeHeightmaps(chunk, types);
+                }
+                chunk.setUnsaved(true);
+                relights.add(ChunkRelighter.relightChunk(level, chunk, emptiedSections));
+            }
+        }
+
+        LOGGER.info("Cleared {} sections around {} in {} ms",
+            clearedSections, center, (System.nanoTime() - startTime) / 1_000_000);
+
+        return CompletableFuture.allOf(relights.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Remove block entities and POIs inside the region, and clear the cells of an edge section
+     */
+    private static void clearSectionContents(ServerLevel level, LevelChunk chunk, LevelChunkSection section,
+                                             SectionPos sectionPos, int minX, int maxX, int minY, int maxY,
+                                             int minZ, int maxZ) {
+        boolean inside = isInside(sectionPos, minX, maxX, minY, maxY, minZ, maxZ);
+        boolean hasExtras = section.maybeHas(state -> state.hasBlockEntity() || PoiTypes.hasPoi(state));
+
+        // A full section without block entities or POIs can be dropped without looking at its cells
+        if (inside && !hasExtras) {
+            return;
+        }
+
+        int fromX = Math.max(minX, sectionPos.minBlockX()), toX = Math.min(maxX, sectionPos.maxBlockX());
+        int fromY = Math.max(minY, sectionPos.minBlockY()), toY = Math.min(maxY, sectionPos.maxBlockY());
+        int fromZ = Math.max(minZ, sectionPos.minBlockZ()), toZ = Math.min(maxZ, sectionPos.maxBlockZ());
+        BlockState air = Blocks.AIR.defaultBlockState();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        ThreadedLevelLightEngine lightEngine = level.getChunkSource().getLightEngine();
+
+        section.acquire();
+        try {
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    for (int x = fromX; x <= toX; x++) {
+                        BlockState oldState = inside
+                            ? section.getBlockState(x & 15, y & 15, z & 15)
+                            : section.setBlockState(x & 15, y & 15, z & 15, air, false);
+                        if (oldState.isAir()) continue;
+
+                        pos.set(x, y, z);
+                        if (oldState.hasBlockEntity()) {
+                            chunk.removeBlockEntity(pos);
+                        }
+                        if (PoiTypes.hasPoi(oldState)) {
+                            level.onBlockStateChange(pos.immutable(), oldState, air);
+                        }
+                        // Edge sections keep their stored light, so removed light sources need a check
+                        if (!inside && LightEngine.hasDifferentLightProperties(chunk, pos, oldState, air)) {
+                            lightEngine.checkBlock(pos);
+                        }
+                    }
+                }
+            }
+        } finally {
+            section.release();
+        }
+    }
+
+    private static boolean isInside(SectionPos sectionPos, int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+        return sectionPos.minBlockX() >= minX && sectionPos.maxBlockX() <= maxX
+            && sectionPos.minBlockY() >= minY && sectionPos.maxBlockY() <= maxY
+            && sectionPos.minBlockZ() >= minZ && sectionPos.maxBlockZ() <= maxZ;
+    }
+}
@@ -0,0 +1,664 @@
+package com.craigsmods.creativeprototyper.util;
+
+import com.craigsmods.creativeprototyper.config.CreativePrototyperConfig;
+import com.craigsmods.creativeprototyper.registry.ModDimensions;
+import com.google.common.io.ByteStreams;
+import com.mojang.logging.LogUtils;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.HolderGetter;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.storage.LevelResource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+
+/**
+ * Periodically saves the remaining work of in-flight builds, so they resume after a restart.
+ * Queues are snapshotted on the server thread, then encoded and written on a background thread.
+ *
+ * Each build has a journal file that every checkpoint appends the blocks queued since the one before
+ * to, so queued blocks are written about once rather than at every checkpoint. A journal holds the
+ * captured block entity data too, so a resumed build places the block entities it captured. The
+ * checkpoint file itself is a small header per build: counters, section state, pairs, and how far
+ * into each queue the build has got. Once most of a journal has been placed the build starts a new
+ * one with only what is left.
+ *
+ * Blocks are stored as one packed relative position and one palette index per block, in queue
+ * order, in records of at most one queue chunk that first list the block states they add to the
+ * palette. Everything is written and read a record at a time, spilled blocks straight from the
+ * spill file, so no queue is ever held as one array.
+ * Sections not scanned yet are stored by position and captured again from the source on resume.
+ */
+public class ScanCheckpointManager {
+    private static final org.slf4j.Logger LOGGER = LogUtils.getLogger();
+    private static final String DATA_DIR = "creative_prototyper_data";
+    private static final String CHECKPOINT_FILE = "scan_checkpoints.dat";
+    private static final String JOURNAL_DIR = "scan_journals";
+    private static final int TICKS_PER_SECOND = 20;
+    // Checkpoints in another layout are dropped rather than misread
+    private static final int FORMAT_VERSION = 3;
+    // Most blocks in one record, the size of a queue chunk
+    private static final int RECORD_SIZE = 4096;
+
+    // One writer thread, so checkpoints reach the disk in the order they were taken
+    private static final ExecutorService SAVE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CreativePrototyper-Checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Whether the last checkpoint written had any scans in it
+    private static boolean hasCheckpoint = false;
+
+    /**
+     * Take a checkpoint when the configured interval has passed. Called at the end of every server tick.
+     */
+    static void tick(MinecraftServer server, Collection<AsyncAreaScanner.ScanData> scans) {
+        int intervalTicks = CreativePrototyperConfig.COMMON.checkpointIntervalSeconds.get() * TICKS_PER_SECOND;
+        if (intervalTicks <= 0 || server.getTickCount() % intervalTicks != 0) {
+            return;
+        }
+
+        File file = getCheckpointFile(server);
+        List<ScanSnapshot> snapshots = snapshotScans(scans, getJournalDir(file));
+        if (snapshots.isEmpty() && !hasCheckpoint) {
+            return; // Nothing running and nothing left on disk
+        }
+        hasCheckpoint = !snapshots.isEmpty();
+
+        SAVE_EXECUTOR.execute(() -> writeCheckpoint(file, snapshots));
+    }
+
+    /**
+     * Save a final checkpoint and wait for it to be written. Called when the server stops.
+     */
+    public static void saveCheckpoint(MinecraftServer server) {
+        File file = getCheckpointFile(server);
+        List<ScanSnapshot> snapshots = snapshotScans(AsyncAreaScanner.getActiveScans().values(), getJournalDir(file));
+        hasCheckpoint = !snapshots.isEmpty();
+
+        CompletableFuture.runAsync(() -> writeCheckpoint(file, snapshots), SAVE_EXECUTOR).join();
+        LOGGER.info("Saved {} unfinished builds", snapshots.size());
+    }
+
+    /**
+     * Restore the builds from the last checkpoint. Called once the table data has been loaded.
+     */
+    public static void resumeScans(MinecraftServer server) {
+        File file = getCheckpointFile(server);
+        if (!file.exists()) {
+            hasCheckpoint = false;
+            return;
+        }
+        hasCheckpoint = true;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                LOGGER.warn("Dropping scan checkpoints saved in an older format");
+                return;
+            }
+            HolderGetter<Block> blockGetter = BuiltInRegistries.BLOCK.asLookup();
+            File journalDir = getJournalDir(file);
+
+            // Headers follow each other in the stream, so a header that can't be read ends the rest too
+            for (int i = 0; in.readBoolean(); i++) {
+                CompoundTag scanTag = NbtIo.read(in);
+                AsyncAreaScanner.ScanData scanData = readScan(server, scanTag, in, blockGetter);
+                if (scanData == null) continue;
+                try {
+                    readJournal(scanData, scanTag, journalDir, blockGetter);
+                } catch (Exception e) {
+                    // Drops the spill files of what was read so far
+                    scanData.pendingBlocks.clear();
+                    scanData.attachedBlocks.clear();
+                    scanData.blockEntityPositions.clear();
+                    LOGGER.error("Error reading journal of build " + i + " from checkpoint", e);
+                    continue;
+                }
+                try {
+                    AsyncAreaScanner.resumeScan(scanData, new LongOpenHashSet(scanTag.getLongArray("Unscanned")));
+                } catch (Exception e) {
+                    LOGGER.error("Error resuming build " + i + " from checkpoint", e);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error loading scan checkpoints", e);
+        }
+    }
+
+    /**
+     * Snapshot every scan that has captured its area and is placing blocks
+     */
+    private static List<ScanSnapshot> snapshotScans(Collection<AsyncAreaScanner.ScanData> scans, File journalDir) {
+        List<ScanSnapshot> snapshots = new ArrayList<>();
+        for (AsyncAreaScanner.ScanData scanData : scans) {
+            // Scans still loading or clearing their area start over, they haven't placed anything yet
+            if (!scanData.needsBlockPlacement) continue;
+            snapshots.add(new ScanSnapshot(scanData, journalDir));
+        }
+        return snapshots;
+    }
+
+    private static void writeCheckpoint(File file, List<ScanSnapshot> snapshots) {
+        File journalDir = getJournalDir(file);
+        try {
+            if (snapshots.isEmpty()) {
+                Files.deleteIfExists(file.toPath());
+                deleteUnusedJournals(journalDir, Set.of());
+                return;
+            }
+
+            // Journals first, so the header only points at blocks that are on disk
+            for (ScanSnapshot snapshot : snapshots) {
+                snapshot.appendJournal();
+            }
+
+            // Write next to the old checkpoint and swap, so a crash mid-write keeps the previous one
+            File tempFile = new File(file.getParentFile(), CHECKPOINT_FILE + ".tmp");
+            Set<String> journals = new HashSet<>();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+                out.writeInt(FORMAT_VERSION);
+                for (ScanSnapshot snapshot : snapshots) {
+                    out.writeBoolean(true);
+                    snapshot.writeHeader(out);
+                    journals.add(snapshot.journal.file.getName());
+                }
+                out.writeBoolean(false);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Journals of finished builds and the ones replaced by fresh journals
+            deleteUnusedJournals(journalDir, journals);
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("Error saving scan checkpoints", e);
+            // The journals may lack blocks their scans count as written, so each starts over next time
+            for (ScanSnapshot snapshot : snapshots) {
+                snapshot.journal.failed = true;
+            }
+        } finally {
+            // Lets go of the spill files, the queues can truncate them again
+            for (ScanSnapshot snapshot : snapshots) {
+                snapshot.release();
+            }
+        }
+    }
+
+    private static void deleteUnusedJournals(File journalDir, Set<String> journals) {
+        File[] files = journalDir.listFiles();
+        if (files == null) return;
+        for (File journal : files) {
+            if (!journals.contains(journal.getName())) {
+                journal.delete();
+            }
+        }
+    }
+
+    /**
+     * Read one scan whose header was just read, with the pairs that follow it.
+     * Returns null if the build can't be resumed, after reading past its pairs.
+     */
+    @Nullable
+    private static AsyncAreaScanner.ScanData readScan(MinecraftServer server, CompoundTag scanTag, DataInput in,
+                                                      HolderGetter<Block> blockGetter) throws IOException {
+        ResourceKey<Level> dimension = ResourceKey.create(
+            Registries.DIMENSION, new ResourceLocation(scanTag.getString("Dimension")));
+        ServerLevel sourceLevel = server.getLevel(dimension);
+        ServerLevel creativeLevel = server.getLevel(ModDimensions.CREATIVE_DIMENSION_LEVEL_KEY);
+
+        // Block state IDs can change between runs, so states go through the palette the records build up
+        IntArrayList palette = new IntArrayList();
+        if (sourceLevel == null || creativeLevel == null) {
+            LOGGER.warn("Dropping checkpointed build in missing dimension {}", dimension.location());
+            readRecords(in, palette, blockGetter, false, (relativePos, stateId, data) -> {});
+            return null;
+        }
+
+        AsyncAreaScanner.ScanData scanData = new AsyncAreaScanner.ScanData(
+            scanTag.getUUID("PlayerId"),
+            sourceLevel,
+            BlockPos.of(scanTag.getLong("TablePos")),
+            ScanRegion.load(scanTag),
+            null,
+            creativeLevel,
+            BlockPos.of(scanTag.getLong("Placement")),
+            dimension.location().toString()
+        );
+        scanData.placedBlocks.set(scanTag.getInt("PlacedBlocks"));
+        scanData.processedBlocks.set(scanTag.getInt("ProcessedBlocks"));
+        scanData.totalBlocks.set(scanTag.getInt("TotalBlocks"));
+        readRecords(in, palette, blockGetter, false,
+            (relativePos, stateId, data) -> scanData.pairedBlocks.put(relativePos, stateId));
+
+        // Chunks written before the restart still need their relight
+        for (long chunkKey : scanTag.getLongArray("UnlitChunks")) {
+            scanData.unlitChunks.add(chunkKey);
+        }
+        for (long sectionKey : scanTag.getLongArray("StaleSections")) {
+            scanData.sectionWriter.markStale(sectionKey);
+        }
+        for (long sectionKey : scanTag.getLongArray("LitSections")) {
+            scanData.litSections.add(sectionKey);
+        }
+
+        long[] sections = scanTag.getLongArray("Sections");
+        long[] hashes = scanTag.getLongArray("Hashes");
+        for (int i = 0; i < sections.length && i < hashes.length; i++) {
+            scanData.sectionHashes.put(sections[i], hashes[i]);
+        }
+
+        // An incremental rescan carries on against the old hashes of the sections it hasn't scanned
+        if (scanTag.contains("PreviousSections")) {
+            long[] previousSections = scanTag.getLongArray("PreviousSections");
+            long[] previousHashes = scanTag.getLongArray("PreviousHashes");
+            scanData.previousHashes = new Long2LongOpenHashMap();
+            for (int i = 0; i < previousSections.length && i < previousHashes.length; i++) {
+                scanData.previousHashes.put(previousSections[i], previousHashes[i]);
+            }
+        }
+
+        return scanData;
+    }
+
+    /**
+     * Fill the queues from the scan's journal, leaving out the blocks placed before the checkpoint.
+     * Only the part the header counts is read, a later append may have been cut off by a crash.
+     */
+    private static void readJournal(AsyncAreaScanner.ScanData scanData, CompoundTag scanTag, File journalDir,
+                                    HolderGetter<Block> blockGetter) throws IOException {
+        long length = scanTag.getLong("JournalLength");
+        if (length == 0) {
+            return; // Nothing was ever queued
+        }
+
+        File journal = new File(journalDir, scanTag.getString("Journal"));
+        IntArrayList palette = new IntArrayList();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(ByteStreams.limit(new FileInputStream(journal), length))))) {
+            // Each append starts with a marker, the gzip stream runs on through every append
+            while (in.read() > 0) {
+                // Queued blocks also count against their chunks, so relights wait for them
+                readAppended(in, palette, blockGetter, false, scanTag.getLong("BlocksFrom"),
+                    (relativePos, stateId, data) -> {
+                        scanData.pendingBlocks.add(relativePos, stateId);
+                        scanData.trackQueued(relativePos, 1);
+                    });
+                readAppended(in, palette, blockGetter, false, scanTag.getLong("AttachedFrom"),
+                    (relativePos, stateId, data) -> {
+                        scanData.attachedBlocks.add(relativePos, stateId);
+                        scanData.trackQueued(relativePos, 1);
+                    });
+                readAppended(in, palette, blockGetter, true, scanTag.getLong("BlockEntitiesFrom"),
+                    (relativePos, stateId, data) -> {
+                        scanData.blockEntityPositions.add(relativePos, stateId);
+                        if (data != null) {
+                            scanData.blockEntityData.put(relativePos, data);
+                            scanData.blockEntityBytes += data.length;
+                        }
+                    });
+            }
+        }
+    }
+
+    /**
+     * Read one queue's part of an append, passing on the blocks added as number from or later
+     */
+    private static void readAppended(DataInput in, IntArrayList palette, HolderGetter<Block> blockGetter,
+                                     boolean withData, long from, EntryConsumer consumer) throws IOException {
+        long[] added = { in.readLong() };
+        readRecords(in, palette, blockGetter, withData, (relativePos, stateId, data) -> {
+            if (added[0]++ >= from) {
+                consumer.accept(relativePos, stateId, data);
+            }
+        });
+    }
+
+    /**
+     * Read records up to the empty record that ends them, one record at a time
+     */
+    private static void readRecords(DataInput in, IntArrayList palette, HolderGetter<Block> blockGetter,
+                                    boolean withData, EntryConsumer consumer) throws IOException {
+        long[] positions = new long[RECORD_SIZE];
+        int[] stateIds = new int[RECORD_SIZE];
+        int count;
+        while ((count = in.readInt()) > 0) {
+            if (count > RECORD_SIZE) {
+                throw new IOException("Corrupt checkpoint record of " + count + " blocks");
+            }
+            int newStates = in.readInt();
+            for (int i = 0; i < newStates; i++) {
+                palette.add(Block.getId(NbtUtils.readBlockState(blockGetter, NbtIo.read(in))));
+            }
+            for (int i = 0; i < count; i++) {
+                positions[i] = in.readLong();
+            }
+            for (int i = 0; i < count; i++) {
+                stateIds[i] = palette.getInt(in.readInt());
+            }
+            for (int i = 0; i < count; i++) {
+                byte[] data = null;
+                if (withData) {
+                    int size = in.readInt();
+                    if (size >= 0) {
+                        data = new byte[size];
+                        in.readFully(data);
+                    }
+                }
+                consumer.accept(positions[i], stateIds[i], data);
+            }
+        }
+    }
+
+    /**
+     * Write blocks as records of at most RECORD_SIZE, each first listing the states it adds to the palette.
+     * With data, each block's saved block entity follows, a negative size where there is none.
+     */
+    private static void writeRecords(DataOutput out, long[] positions, int[] stateIds, int count,
+                                     Int2IntOpenHashMap paletteIndex,
+                                     @Nullable Long2ObjectOpenHashMap<byte[]> data) throws IOException {
+        List<BlockState> newStates = new ArrayList<>();
+        for (int from = 0; from < count; from += RECORD_SIZE) {
+            int to = Math.min(count, from + RECORD_SIZE);
+            newStates.clear();
+            for (int i = from; i < to; i++) {
+                if (!paletteIndex.containsKey(stateIds[i])) {
+                    paletteIndex.put(stateIds[i], paletteIndex.size());
+                    newStates.add(Block.stateById(stateIds[i]));
+                }
+            }
+
+            out.writeInt(to - from);
+            out.writeInt(newStates.size());
+            for (BlockState state : newStates) {
+                NbtIo.write(NbtUtils.writeBlockState(state), out);
+            }
+            for (int i = from; i < to; i++) {
+                out.writeLong(positions[i]);
+            }
+            for (int i = from; i < to; i++) {
+                out.writeInt(paletteIndex.get(stateIds[i]));
+            }
+            if (data != null) {
+                for (int i = from; i < to; i++) {
+                    byte[] blockEntity = data.get(positions[i]);
+                    out.writeInt(blockEntity != null ? blockEntity.length : -1);
+                    if (blockEntity != null) {
+                        out.write(blockEntity);
+                    }
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryConsumer {
+        void accept(long relativePos, int stateId, @Nullable byte[] data);
+    }
+
+    private static File getCheckpointFile(MinecraftServer server) {
+        File dataDir = new File(server.getWorldPath(LevelResource.PLAYER_DATA_DIR).toFile(), DATA_DIR);
+        return new File(dataDir, CHECKPOINT_FILE);
+    }
+
+    private static File getJournalDir(File checkpointFile) {
+        return new File(checkpointFile.getParentFile(), JOURNAL_DIR);
+    }
+
+    /**
+     * One build's journal file. Every checkpoint appends the entries each queue gained since the
+     * one before, as one more gzip member, so the file reads as a single stream.
+     */
+    static class Journal {
+        final File file;
+        // Entries each queue had added when it was last appended, kept on the server thread
+        long blocksWritten = 0L;
+        long attachedWritten = 0L;
+        long blockEntitiesWritten = 0L;
+        long entriesWritten = 0L;
+        // Kept on the writer thread
+        final Int2IntOpenHashMap paletteIndex = new Int2IntOpenHashMap();
+        long length = 0L;
+        // Set by the writer when an append may not have made it, the build then starts a new journal
+        volatile boolean failed = false;
+
+        Journal(File journalDir) {
+            this.file = new File(journalDir, UUID.randomUUID() + ".bin");
+        }
+
+        /**
+         * Whether most of what was written has been placed since, so a fresh journal is smaller
+         */
+        boolean isSpent(long queued) {
+            return entriesWritten > 2 * queued + RECORD_SIZE;
+        }
+    }
+
+    /**
+     * Copy of one scan's state, taken on the server thread and encoded on the writer thread
+     */
+    private static class ScanSnapshot {
+        final UUID playerId;
+        final String dimension;
+        final BlockPos tablePos;
+        final ScanRegion region;
+        final BlockPos placementPos;
+        final int placedBlocks;
+        final int processedBlocks;
+        final int totalBlocks;
+        final Journal journal;
+        // The entries added since the last append, streamed into the journal on the writer thread
+        final PackedBlockQueue.Snapshot blocks;
+        final PackedBlockQueue.Snapshot attached;
+        final PackedBlockQueue.Snapshot blockEntities;
+        // Where each queue's head is, the entries before it have been placed
+        final long blocksFrom;
+        final long attachedFrom;
+        final long blockEntitiesFrom;
+        // Only copied when block entities are appended, which is about once per journal
+        @Nullable
+        final Long2ObjectOpenHashMap<byte[]> blockEntityData;
+        final long[] pairedPositions;
+        final int[] pairedStates;
+        final long[] sections;
+        final long[] hashes;
+        final long[] unscanned;
+        // Null unless the scan is an incremental rescan
+        final long[] previousSections;
+        final long[] previousHashes;
+        final long[] unlitChunks;
+        final long[] staleSections;
+        final long[] litSections;
+
+        ScanSnapshot(AsyncAreaScanner.ScanData scanData, File journalDir) {
+            this.playerId = scanData.playerId;
+            this.dimension = scanData.level.dimension().location().toString();
+            this.tablePos = scanData.tablePos;
+            this.region = scanData.region;
+            this.placementPos = scanData.placementPos;
+            this.placedBlocks = scanData.placedBlocks.get();
+
+            // Sections copied whole are scanned again on resume, so their blocks don't count yet
+            LongSet unscannedSections = scanData.getUnscannedSections();
+            int pendingClonedBlocks = 0;
+            for (ParallelSectionScanner.SectionResult result : scanData.clonedSections) {
+                pendingClonedBlocks += result.clonedBlocks;
+            }
+            this.processedBlocks = scanData.processedBlocks.get() - pendingClonedBlocks;
+            this.totalBlocks = scanData.totalBlocks.get() - pendingClonedBlocks;
+
+            PackedBlockQueue pendingBlocks = scanData.pendingBlocks;
+            PackedBlockQueue attachedBlocks = scanData.attachedBlocks;
+            PackedBlockQueue blockEntityPositions = scanData.blockEntityPositions;
+            long queued = pendingBlocks.size() + attachedBlocks.size() + blockEntityPositions.size();
+            if (scanData.journal == null || scanData.journal.failed || scanData.journal.isSpent(queued)) {
+                scanData.journal = new Journal(journalDir);
+            }
+            this.journal = scanData.journal;
+
+            this.blocks = pendingBlocks.snapshot(journal.blocksWritten);
+            this.attached = attachedBlocks.snapshot(journal.attachedWritten);
+            this.blockEntities = blockEntityPositions.snapshot(journal.blockEntitiesWritten);
+            journal.blocksWritten = pendingBlocks.getAddedCount();
+            journal.attachedWritten = attachedBlocks.getAddedCount();
+            journal.blockEntitiesWritten = blockEntityPositions.getAddedCount();
+            journal.entriesWritten += blocks.size() + attached.size() + blockEntities.size();
+            this.blocksFrom = pendingBlocks.getAddedCount() - pendingBlocks.size();
+            this.attachedFrom = attachedBlocks.getAddedCount() - attachedBlocks.size();
+            this.blockEntitiesFrom = blockEntityPositions.getAddedCount() - blockEntityPositions.size();
+            this.blockEntityData = blockEntities.size() > 0
+                ? new Long2ObjectOpenHashMap<>(scanData.blockEntityData) : null;
+
+            this.pairedPositions = scanData.pairedBlocks.keySet().toLongArray();
+            this.pairedStates = new int[pairedPositions.length];
+            for (int i = 0; i < pairedPositions.length; i++) {
+                pairedStates[i] = scanData.pairedBlocks.get(pairedPositions[i]);
+            }
+
+            LongArrayList sectionList = new LongArrayList();
+            LongArrayList hashList = new LongArrayList();
+            for (Long2LongMap.Entry entry : scanData.sectionHashes.long2LongEntrySet()) {
+                if (unscannedSections.contains(entry.getLongKey())) continue;
+                sectionList.add(entry.getLongKey());
+                hashList.add(entry.getLongValue());
+            }
+            this.sections = sectionList.toLongArray();
+            this.hashes = hashList.toLongArray();
+            this.unscanned = unscannedSections.toLongArray();
+
+            if (scanData.previousHashes != null) {
+                LongArrayList previousSectionList = new LongArrayList();
+                LongArrayList previousHashList = new LongArrayList();
+                for (long sectionKey : unscanned) {
+                    if (scanData.previousHashes.containsKey(sectionKey)) {
+                        previousSectionList.add(sectionKey);
+                        previousHashList.add(scanData.previousHashes.get(sectionKey));
+                    }
+                }
+                this.previousSections = previousSectionList.toLongArray();
+                this.previousHashes = previousHashList.toLongArray();
+            } else {
+                this.previousSections = null;
+                this.previousHashes = null;
+            }
+
+            this.unlitChunks = scanData.unlitChunks.toLongArray();
+            this.staleSections = scanData.sectionWriter.getStaleSections().toLongArray();
+            this.litSections = scanData.litSections.toLongArray();
+        }
+
+        /**
+         * Append the new entries of each queue to the journal, skipped when there are none
+         */
+        void appendJournal() throws IOException {
+            if (blocks.size() + attached.size() + blockEntities.size() == 0) {
+                return;
+            }
+
+            journal.file.getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(journal.file, true))))) {
+                out.writeByte(1);
+                appendQueue(out, blocks, null);
+                appendQueue(out, attached, null);
+                appendQueue(out, blockEntities, blockEntityData);
+            }
+            journal.length = journal.file.length();
+        }
+
+        /**
+         * Write the header, then the pairs as records ending in an empty one
+         */
+        void writeHeader(DataOutputStream out) throws IOException {
+            CompoundTag scanTag = new CompoundTag();
+            scanTag.putUUID("PlayerId", playerId);
+            scanTag.putString("Dimension", dimension);
+            scanTag.putLong("TablePos", tablePos.asLong());
+            scanTag.put("Region", region.save());
+            scanTag.putLong("Placement", placementPos.asLong());
+            scanTag.putInt("PlacedBlocks", placedBlocks);
+            scanTag.putInt("ProcessedBlocks", processedBlocks);
+            scanTag.putInt("TotalBlocks", totalBlocks);
+            scanTag.putString("Journal", journal.file.getName());
+            scanTag.putLong("JournalLength", journal.length);
+            scanTag.putLong("BlocksFrom", blocksFrom);
+            scanTag.putLong("AttachedFrom", attachedFrom);
+            scanTag.putLong("BlockEntitiesFrom", blockEntitiesFrom);
+            scanTag.putLongArray("Sections", sections);
+            scanTag.putLongArray("Hashes", hashes);
+            scanTag.putLongArray("Unscanned", unscanned);
+            if (previousSections != null) {
+                scanTag.putLongArray("PreviousSections", previousSections);
+                scanTag.putLongArray("PreviousHashes", previousHashes);
+            }
+            scanTag.putLongArray("UnlitChunks", unlitChunks);
+            scanTag.putLongArray("StaleSections", staleSections);
+            scanTag.putLongArray("LitSections", litSections);
+            NbtIo.write(scanTag, out);
+
+            // Pairs are few and leave in any order, so they are written whole with a palette of their own
+            writeRecords(out, pairedPositions, pairedStates, pairedPositions.length, new Int2IntOpenHashMap(), null);
+            out.writeInt(0);
+        }
+
+        void release() {
+            blocks.release();
+            attached.release();
+            blockEntities.release();
+        }
+
+        private void appendQueue(DataOutputStream out, PackedBlockQueue.Snapshot queue,
+                                 @Nullable Long2ObjectOpenHashMap<byte[]> data) throws IOException {
+            out.writeLong(queue.getFirstAdded());
+            queue.forEachChunk((positions, stateIds, count) ->
+                writeRecords(out, positions, stateIds, count, journal.paletteIndex, data));
+            out.writeInt(0);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.craigsmods.creativeprototyper.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Quick estimate of what a scan will cost, from each section's block counts and the chunks'
+ * block entity maps. Nothing is copied or scanned, so it is cheap enough to run while a player types.
+ */
+public class ScanEstimator {
+    // A player gets at most one estimate this often, the screen already waits for typing to stop
+    private static final int MIN_ESTIMATE_INTERVAL_TICKS = 5;
+
+    // Server tick of each player's last estimate
+    private static final Map<UUID, Integer> lastEstimateTicks = new HashMap<>();
+
+    /**
+     * Whether a player may have another estimate now, and count it if so. Must be called on the server thread.
+     */
+    public static boolean tryStartEstimate(ServerPlayer player) {
+        int tick = player.server.getTickCount();
+        Integer lastTick = lastEstimateTicks.get(player.getUUID());
+        if (lastTick != null && tick - lastTick < MIN_ESTIMATE_INTERVAL_TICKS) {
+            return false;
+        }
+        lastEstimateTicks.put(player.getUUID(), tick);
+        return true;
+    }
+
+    /**
+     * Forget a player's throttle when they leave
+     */
+    public static void clear(UUID playerId) {
+        lastEstimateTicks.remove(playerId);
+    }
+
+    /**
+     * Estimate the blocks and block entities in a region and how long they would take to build.
+     * Sections partly inside the region are assumed to have their blocks spread evenly.
+     * Unloaded chunks are not counted, scans check their limit again once the area is loaded.
+     * Must be called on the server thread.
+     */
+    public static Estimate estimate(ServerLevel level, BlockPos center, ScanRegion region) {
+        double blocks = 0.0;
+        int blockEntities = 0;
+        int unloadedChunks = 0;
+
+        int minSectionX = SectionPos.blockToSectionCoord(center.getX() + region.getMinX());
+        int maxSectionX = SectionPos.blockToSectionCoord(center.getX() + region.getMaxX());
+        int minSectionZ = SectionPos.blockToSectionCoord(center.getZ() + region.getMinZ());
+        int maxSectionZ = SectionPos.blockToSectionCoord(center.getZ() + region.getMaxZ());
+        int minSectionY = Math.max(level.getMinSection(), SectionPos.blockToSectionCoord(center.getY() + region.getMinY()));
+        int maxSectionY = Math.min(level.getMaxSection() - 1, SectionPos.blockToSectionCoord(center.getY() + region.getMaxY()));
+
+        for (int sectionX = minSectionX; sectionX <= maxSectionX; sectionX++) {
+            for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; sectionZ++) {
+                int fromX = SectionPos.sectionToBlockCoord(sectionX) - center.getX();
+                int fromZ = SectionPos.sectionToBlockCoord(sectionZ) - center.getZ();
+                if (!region.intersectsColumns(fromX, fromZ, fromX + 15, fromZ + 15)) continue;
+
+                LevelChunk chunk = level.getChunkSource().getChunkNow(sectionX, sectionZ);
+                if (chunk == null) {
+                    unloadedChunks++;
+                    continue;
+                }
+
+                // Share of the chunk's columns inside the region
+                int columns = 0;
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (region.containsColumn(fromX + x, fromZ + z)) columns++;
+                    }
+                }
+
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    LevelChunkSection section = chunk.getSection(chunk.getSectionIndexFromSectionY(sectionY));
+                    if (section.hasOnlyAir()) continue;
+
+                    int fromY = SectionPos.sectionToBlockCoord(sectionY) - center.getY();
+                    int layers = Math.min(region.getMaxY(), fromY + 15) - Math.max(region.getMinY(), fromY) + 1;
+
+                    // The section keeps a running count of its non-air blocks, opened up by the access transformer
+                    blocks += section.nonEmptyBlockCount * (columns * layers / 4096.0);
+                }
+
+                for (BlockPos pos : chunk.getBlockEntities().keySet()) {
+                    if (region.contains(pos.getX() - center.getX(), pos.getY() - center.getY(), pos.getZ() - center.getZ())) {
+                        blockEntities++;
+                    }
+                }
+            }
+        }
+
+        long estimatedBlocks = Math.round(blocks);
+        long ticks = PlacementScheduler.estimateTicks(level.getServer(), estimatedBlocks, AsyncAreaScanner.getScans().size());
+        return new Estimate(estimatedBlocks, blockEntities, ticks, unloadedChunks);
+    }
+
+    /**
+     * Expected size and build time of a scan
+     */
+    public static class Estimate {
+        // Non-air blocks, block entities included
+        public final long blocks;
+        public final int blockEntities;
+        // Server ticks to place everything at the current rate
+        public final long ticks;
+        public final int unloadedChunks;
+
+        Estimate(long blocks, int blockEntities, long ticks, int unloadedChunks) {
+            this.blocks = blocks;
+            this.blockEntities = blockEntities;
+            this.ticks = ticks;
+            this.unloadedChunks = unloadedChunks;
+        }
+    }
+}
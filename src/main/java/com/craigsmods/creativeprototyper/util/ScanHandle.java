@@ -0,0 +1,193 @@
+package com.craigsmods.creativeprototyper.util;
+
+import com.mojang.logging.LogUtils;
+
+import net.minecraft.core.BlockPos;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Control and observe one scan. Returned by AsyncAreaScanner.startScan and
+ * looked up with AsyncAreaScanner.getScan.
+ *
+ * All methods are safe to call from any thread. Progress listeners are called on the server thread.
+ */
+public class ScanHandle {
+    private static final org.slf4j.Logger LOGGER = LogUtils.getLogger();
+
+    // Listeners hear about progress at most once a second
+    private static final int PROGRESS_INTERVAL_TICKS = 20;
+
+    /**
+     * Where a scan is in its life
+     */
+    public enum State {
+        // Loading and scanning the source area
+        SCANNING,
+        // Placing blocks in the creative dimension
+        PLACING,
+        // Placement is on hold until resumed
+        PAUSED,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    /**
+     * Receives throttled progress updates while blocks are placed
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(ScanHandle handle, int placedBlocks, int totalBlocks);
+    }
+
+    private final AsyncAreaScanner.ScanData scanData;
+    private final CompletableFuture<Integer> completion = new CompletableFuture<>();
+    private final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled = false;
+    private volatile boolean paused = false;
+    private int lastReportedPlaced = -1;
+    private int lastReportTick = 0;
+
+    ScanHandle(AsyncAreaScanner.ScanData scanData) {
+        this.scanData = scanData;
+    }
+
+    /**
+     * Stop the scan. Blocks already placed stay in the creative dimension.
+     */
+    public void cancel() {
+        if (completion.isDone()) {
+            return;
+        }
+        cancelled = true;
+        AsyncAreaScanner.cancelScan(scanData);
+        completion.cancel(false);
+    }
+
+    /**
+     * Stop placing blocks until resumed. A scan that is still scanning goes on until its queues are full,
+     * then waits without holding a scan thread.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    public State getState() {
+        if (completion.isCancelled()) return State.CANCELLED;
+        if (completion.isCompletedExceptionally()) return State.FAILED;
+        if (completion.isDone()) return State.COMPLETED;
+        if (paused) return State.PAUSED;
+        return scanData.scanFinished ? State.PLACING : State.SCANNING;
+    }
+
+    /**
+     * Completes with the number of placed blocks when the build is finished
+     */
+    public CompletableFuture<Integer> getCompletionFuture() {
+        return completion;
+    }
+
+    public void addProgressListener(ProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeProgressListener(ProgressListener listener) {
+        listeners.remove(listener);
+    }
+
+    public UUID getPlayerId() {
+        return scanData.playerId;
+    }
+
+    public BlockPos getTablePos() {
+        return scanData.tablePos;
+    }
+
+    public ScanRegion getRegion() {
+        return scanData.region;
+    }
+
+    public int getPlacedBlocks() {
+        return scanData.placedBlocks.get();
+    }
+
+    public int getTotalBlocks() {
+        return scanData.totalBlocks.get();
+    }
+
+    /**
+     * Bytes the build holds in memory: its queues, the saved block entity data and roughly its bookkeeping maps.
+     * Read on the server thread.
+     */
+    public long getMemoryBytes() {
+        return scanData.pendingBlocks.getMemoryBytes() + scanData.attachedBlocks.getMemoryBytes() 
+            + scanData.blockEntityPositions.getMemoryBytes() + scanData.blockEntityBytes + scanData.getMapMemoryBytes();
+    }
+
+    /**
+     * Bytes of queued blocks spilled to disk. Read on the server thread.
+     */
+    public long getSpilledBytes() {
+        return scanData.pendingBlocks.getSpilledBytes() + scanData.attachedBlocks.getSpilledBytes() 
+            + scanData.blockEntityPositions.getSpilledBytes();
+    }
+
+    /**
+     * Notify listeners if the throttle interval has passed and progress changed
+     */
+    void tickProgress(int tickCount) {
+        if (listeners.isEmpty() || tickCount - lastReportTick < PROGRESS_INTERVAL_TICKS) {
+            return;
+        }
+        int placed = getPlacedBlocks();
+        if (placed == lastReportedPlaced) {
+            return;
+        }
+        lastReportTick = tickCount;
+        lastReportedPlaced = placed;
+        notifyListeners(placed);
+    }
+
+    void complete(int placedBlocks) {
+        // The final update is never throttled
+        if (placedBlocks != lastReportedPlaced) {
+            notifyListeners(placedBlocks);
+        }
+        completion.complete(placedBlocks);
+    }
+
+    void fail(Throwable error) {
+        completion.completeExceptionally(error);
+    }
+
+    private void notifyListeners(int placed) {
+        int total = getTotalBlocks();
+        for (ProgressListener listener : listeners) {
+            try {
+                listener.onProgress(this, placed, total);
+            } catch (Exception e) {
+                LOGGER.error("Error in scan progress listener: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.craigsmods.creativeprototyper.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
+
+/**
+ * The volume a scan covers, relative to the table. Bounds are inclusive.
+ * A box can be asymmetric, a cylinder is centered on the table's column.
+ */
+public final class ScanRegion {
+
+    public enum Shape {
+        BOX,
+        CYLINDER
+    }
+
+    private final Shape shape;
+    private final int minX, minY, minZ;
+    private final int maxX, maxY, maxZ;
+
+    private ScanRegion(Shape shape, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.shape = shape;
+        this.minX = Math.min(minX, maxX);
+        this.minY = Math.min(minY, maxY);
+        this.minZ = Math.min(minZ, maxZ);
+        this.maxX = Math.max(minX, maxX);
+        this.maxY = Math.max(minY, maxY);
+        this.maxZ = Math.max(minZ, maxZ);
+    }
+
+    /**
+     * Cube centered on the table, the original scan shape
+     */
+    public static ScanRegion cube(int radius) {
+        return box(radius, radius, radius);
+    }
+
+    /**
+     * Box centered on the table's column, reaching up and down by different amounts
+     */
+    public static ScanRegion box(int horizontal, int up, int down) {
+        return new ScanRegion(Shape.BOX, -horizontal, -down, -horizontal, horizontal, up, horizontal);
+    }
+
+    /**
+     * Upright cylinder around the table's column
+     */
+    public static ScanRegion cylinder(int radius, int up, int down) {
+        return new ScanRegion(Shape.CYLINDER, -radius, -down, -radius, radius, up, radius);
+    }
+
+    /**
+     * Box spanning two selected corners, relative to an origin
+     */
+    public static ScanRegion fromCorners(BlockPos origin, BlockPos first, BlockPos second) {
+        return new ScanRegion(Shape.BOX,
+            first.getX() - origin.getX(), first.getY() - origin.getY(), first.getZ() - origin.getZ(),
+            second.getX() - origin.getX(), second.getY() - origin.getY(), second.getZ() - origin.getZ());
+    }
+
+    /**
+     * Smallest box holding both regions
+     */
+    public static ScanRegion union(ScanRegion a, ScanRegion b) {
+        return new ScanRegion(Shape.BOX,
+            Math.min(a.minX, b.minX), Math.min(a.minY, b.minY), Math.min(a.minZ, b.minZ),
+            Math.max(a.maxX, b.maxX), Math.max(a.maxY, b.maxY), Math.max(a.maxZ, b.maxZ));
+    }
+
+    /**
+     * Whether a column, relative to the table, is part of the region
+     */
+    public boolean containsColumn(int dx, int dz) {
+        if (dx < minX || dx > maxX || dz < minZ || dz > maxZ) {
+            return false;
+        }
+        if (shape == Shape.CYLINDER) {
+            // Rounded the same way as vanilla circles, so the rim isn't a single block at each axis
+            int radius = maxX;
+            return dx * dx + dz * dz <= radius * radius + radius;
+        }
+        return true;
+    }
+
+    /**
+     * Whether a position, relative to the table, is part of the region
+     */
+    public boolean contains(int dx, int dy, int dz) {
+        return dy >= minY && dy <= maxY && containsColumn(dx, dz);
+    }
+
+    /**
+     * Whether any column in a relative x/z rectangle is part of the region
+     */
+    public boolean intersectsColumns(int fromX, int fromZ, int toX, int toZ) {
+        if (toX < minX || fromX > maxX || toZ < minZ || fromZ > maxZ) {
+            return false;
+        }
+        if (shape == Shape.CYLINDER) {
+            // Test the point of the rectangle closest to the axis
+            int nearestX = Math.max(fromX, Math.min(0, toX));
+            int nearestZ = Math.max(fromZ, Math.min(0, toZ));
+            return containsColumn(nearestX, nearestZ);
+        }
+        return true;
+    }
+
+    /**
+     * Whether every position of a relative box is part of the region
+     */
+    public boolean containsBox(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+        if (fromY < minY || toY > maxY) {
+            return false;
+        }
+        // Both shapes are convex, so the box is inside when its corners are
+        return containsColumn(fromX, fromZ) && containsColumn(toX, fromZ)
+            && containsColumn(fromX, toZ) && containsColumn(toX, toZ);
+    }
+
+    /**
+     * Whether every bound lies within a distance of the table, used for the configured scan limit
+     */
+    public boolean fitsWithin(int maxDistance) {
+        return Math.max(Math.max(Math.abs(minX), Math.abs(maxX)),
+               Math.max(Math.max(Math.abs(minY), Math.abs(maxY)),
+                        Math.max(Math.abs(minZ), Math.abs(maxZ)))) <= maxDistance;
+    }
+
+    /**
+     * Largest horizontal distance from the table, for effects that only know a radius
+     */
+    public int getHorizontalExtent() {
+        return Math.max(Math.max(Math.abs(minX), Math.abs(maxX)), Math.max(Math.abs(minZ), Math.abs(maxZ)));
+    }
+
+    /**
+     * Number of bounding box positions, an upper bound on the blocks a scan visits
+     */
+    public long getVolume() {
+        return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+    }
+
+    public Shape getShape() {
+        return shape;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    public void write(FriendlyByteBuf buf) {
+        buf.writeEnum(shape);
+        buf.writeVarInt(minX);
+        buf.writeVarInt(minY);
+        buf.writeVarInt(minZ);
+        buf.writeVarInt(maxX);
+        buf.writeVarInt(maxY);
+        buf.writeVarInt(maxZ);
+    }
+
+    public static ScanRegion read(FriendlyByteBuf buf) {
+        Shape shape = buf.readEnum(Shape.class);
+        return new ScanRegion(shape,
+            buf.readVarInt(), buf.readVarInt(), buf.readVarInt(),
+            buf.readVarInt(), buf.readVarInt(), buf.readVarInt());
+    }
+
+    public CompoundTag save() {
+        CompoundTag tag = new CompoundTag();
+        tag.putString("Shape", shape.name());
+        tag.putIntArray("Bounds", new int[] { minX, minY, minZ, maxX, maxY, maxZ });
+        return tag;
+    }
+
+    /**
+     * Read a region saved by save(), or a cube for data saved before regions existed
+     */
+    public static ScanRegion load(CompoundTag parent) {
+        if (!parent.contains("Region")) {
+            return cube(parent.getInt("Radius"));
+        }
+        CompoundTag tag = parent.getCompound("Region");
+        int[] bounds = tag.getIntArray("Bounds");
+        if (bounds.length != 6) {
+            return cube(0);
+        }
+        Shape shape = tag.getString("Shape").equals(Shape.CYLINDER.name()) ? Shape.CYLINDER : Shape.BOX;
+        return new ScanRegion(shape, bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ScanRegion other)) return false;
+        return shape == other.shape
+            && minX == other.minX && minY == other.minY && minZ == other.minZ
+            && maxX == other.maxX && maxY == other.maxY && maxZ == other.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = shape.hashCode();
+        result = 31 * result + minX;
+        result = 31 * result + minY;
+        result = 31 * result + minZ;
+        result = 31 * result + maxX;
+        result = 31 * result + maxY;
+        result = 31 * result + maxZ;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return shape + "[" + minX + "," + minY + "," + minZ + " to " + maxX + "," + maxY + "," + maxZ + "]";
+    }
+}
@@ -0,0 +1,88 @@
+package com.craigsmods.creativeprototyper.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * Two-corner selections players make with /cpselect, used by the table's selection scan mode
+ */
+public class ScanSelectionManager {
+    private static final Map<UUID, Selection> selections = new HashMap<>();
+
+    /**
+     * Set the first or second corner of a player's selection
+     */
+    public static void setCorner(ServerPlayer player, boolean first, BlockPos pos) {
+        ResourceKey<Level> dimension = player.level().dimension();
+        Selection selection = selections.get(player.getUUID());
+
+        // Corners in different dimensions can't form a region, so start over
+        if (selection == null || !selection.dimension.equals(dimension)) {
+            selection = new Selection(dimension);
+            selections.put(player.getUUID(), selection);
+        }
+
+        if (first) {
+            selection.first = pos.immutable();
+        } else {
+            selection.second = pos.immutable();
+        }
+    }
+
+    public static void clear(UUID playerId) {
+        selections.remove(playerId);
+    }
+
+    /**
+     * The player's selection relative to a table, or null if it is incomplete or in another dimension
+     */
+    @Nullable
+    public static ScanRegion getRegion(ServerPlayer player, BlockPos tablePos) {
+        Selection selection = selections.get(player.getUUID());
+        if (selection == null || selection.first == null || selection.second == null
+                || !selection.dimension.equals(player.level().dimension())) {
+            return null;
+        }
+        return ScanRegion.fromCorners(tablePos, selection.first, selection.second);
+    }
+
+    /**
+     * Resolve the region a scan packet asked for, where null means the player's selection.
+     * Tells the player when their selection is unusable.
+     */
+    @Nullable
+    public static ScanRegion resolve(ServerPlayer player, BlockPos tablePos, @Nullable ScanRegion region) {
+        if (region != null) {
+            return region;
+        }
+
+        ScanRegion selected = getRegion(player, tablePos);
+        if (selected == null) {
+            player.displayClientMessage(
+                Component.literal("Select two corners with /cpselect pos1 and /cpselect pos2 first"), false);
+        }
+        return selected;
+    }
+
+    /**
+     * One player's corners
+     */
+    private static class Selection {
+        final ResourceKey<Level> dimension;
+        BlockPos first;
+        BlockPos second;
+
+        Selection(ResourceKey<Level> dimension) {
+            this.dimension = dimension;
+        }
+    }
+}
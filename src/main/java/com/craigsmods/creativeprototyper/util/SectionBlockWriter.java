@@ -0,0 +1,384 @@
+package com.craigsmods.creativeprototyper.util;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.ai.village.poi.PoiTypes;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.lighting.LightEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Writes blocks straight into chunk section storage, bypassing Level.setBlock.
+ * Blocks are grouped by target section and the chunk bookkeeping (heightmaps,
+ * POIs, client sync, light) is fixed up once per section or chunk.
+ *
+ * Only use this for blocks without block entities.
+ * With deferred lighting the light engine is left alone and the touched chunks are collected
+ * so each can be relit once when it is done, see ChunkRelighter. The touched sections are
+ * remembered per chunk, since their old light has to be thrown away before that relight.
+ */
+public class SectionBlockWriter {
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+
+    private final ServerLevel level;
+    private final Long2ObjectLinkedOpenHashMap<SectionBatch> batches = new Long2ObjectLinkedOpenHashMap<>();
+    // Chunks written without light updates, null to update light per block
+    @Nullable
+    private final LongSet unlitChunks;
+    // Section ys per chunk whose stored light no longer matches their blocks
+    private final Long2ObjectOpenHashMap<IntSet> staleSections = new Long2ObjectOpenHashMap<>();
+
+    public SectionBlockWriter(ServerLevel level, @Nullable LongSet unlitChunks) {
+        this.level = level;
+        this.unlitChunks = unlitChunks;
+    }
+
+    /**
+     * Queue a block to be written on the next flush
+     */
+    public void add(BlockPos pos, BlockState state) {
+        long sectionKey = SectionPos.asLong(
+            SectionPos.blockToSectionCoord(pos.getX()),
+            SectionPos.blockToSectionCoord(pos.getY()),
+            SectionPos.blockToSectionCoord(pos.getZ())
+        );
+
+        SectionBatch batch = batches.get(sectionKey);
+        if (batch == null) {
+            batch = new SectionBatch(SectionPos.of(sectionKey));
+            batches.put(sectionKey, batch);
+        }
+        batch.add(pos, state);
+    }
+
+    /**
+     * Number of blocks waiting for the next flush
+     */
+    public int pendingCount() {
+        int count = 0;
+        for (SectionBatch batch : batches.values()) {
+            count += batch.size;
+        }
+        return count;
+    }
+
+    /**
+     * Write every queued block, then fix up the touched chunks once each.
+     * Must be called on the server thread. Returns the number of blocks written.
+     * If writing fails, the queued blocks are dropped and the exception is rethrown.
+     */
+    public int flush() {
+        if (batches.isEmpty()) {
+            return 0;
+        }
+
+        int written = 0;
+        LongSet touchedChunks = new LongOpenHashSet();
+
+        try {
+            for (SectionBatch batch : batches.values()) {
+                written += writeSection(batch);
+                touchedChunks.add(ChunkPos.asLong(batch.pos.x(), batch.pos.z()));
+                if (unlitChunks != null) {
+                    markStale(batch.pos.asLong());
+                }
+            }
+        } finally {
+            // A batch that failed is dropped, so it doesn't fail every later flush too
+            batches.clear();
+        }
+
+        // Heightmaps are rebuilt once per chunk instead of once per block
+        for (long chunkKey : touchedChunks) {
+            LevelChunk chunk = level.getChunk(ChunkPos.getX(chunkKey), ChunkPos.getZ(chunkKey));
+            primeHeightmaps(chunk);
+            chunk.setUnsaved(true);
+        }
+
+        if (unlitChunks != null) {
+            unlitChunks.addAll(touchedChunks);
+        }
+
+        return written;
+    }
+
+    /**
+     * Take the sections of a chunk written without light updates, to hand to ChunkRelighter.relightChunk
+     */
+    public IntSet takeStaleSections(long chunkKey) {
+        IntSet sections = staleSections.remove(chunkKey);
+        return sections != null ? sections : IntSets.EMPTY_SET;
+    }
+
+    /**
+     * Every section still waiting for its relight, as section keys, for checkpoints
+     */
+    public LongList getStaleSections() {
+        LongList sectionKeys = new LongArrayList();
+        for (Long2ObjectMap.Entry<IntSet> entry : staleSections.long2ObjectEntrySet()) {
+            int chunkX = ChunkPos.getX(entry.getLongKey()), chunkZ = ChunkPos.getZ(entry.getLongKey());
+            for (int sectionY : entry.getValue()) {
+                sectionKeys.add(SectionPos.asLong(chunkX, sectionY, chunkZ));
+            }
+        }
+        return sectionKeys;
+    }
+
+    /**
+     * Remember a section whose light has to be rebuilt when its chunk is relit
+     */
+    public void markStale(long sectionKey) {
+        long chunkKey = ChunkPos.asLong(SectionPos.x(sectionKey), SectionPos.z(sectionKey));
+        IntSet sections = staleSections.get(chunkKey);
+        if (sections == null) {
+            sections = new IntOpenHashSet();
+            staleSections.put(chunkKey, sections);
+        }
+        sections.add(SectionPos.y(sectionKey));
+    }
+
+    /**
+     * Swap a whole section for a copy of a source section, biomes and light included.
+     * Returns whether the copied light was installed. If not, the section is marked stale
+     * and its chunk needs a relight. Either way the chunk has to be resent to the clients.
+     * Must be called on the server thread.
+     */
+    public boolean replaceSection(SectionPos sectionPos, PalettedContainer<BlockState> states,
+                                  @Nullable PalettedContainer<Holder<Biome>> biomes,
+                                  @Nullable DataLayer blockLight, @Nullable DataLayer skyLight) {
+        LevelChunk chunk = level.getChunk(sectionPos.x(), sectionPos.z());
+        int sectionIndex = chunk.getSectionIndexFromSectionY(sectionPos.y());
+        if (sectionIndex < 0 || sectionIndex >= chunk.getSections().length) {
+            return true; // Outside the build height, nothing to light
+        }
+
+        LevelChunkSection oldSection = chunk.getSection(sectionIndex);
+        LevelChunkSection section = new LevelChunkSection(states, biomes != null ? biomes : oldSection.getBiomes());
+
+        // Block entities are not stored in the section, so remove them from the chunk
+        if (oldSection.maybeHas(BlockState::hasBlockEntity)) {
+            for (BlockPos pos : new ArrayList<>(chunk.getBlockEntities().keySet())) {
+                if (SectionPos.blockToSectionCoord(pos.getY()) == sectionPos.y()) {
+                    chunk.removeBlockEntity(pos);
+                }
+            }
+        }
+
+        // POIs follow the block states, so compare cells only when either section has any
+        if (oldSection.maybeHas(PoiTypes::hasPoi) || section.maybeHas(PoiTypes::hasPoi)) {
+            BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+            for (int index = 0; index < SECTION_VOLUME; index++) {
+                int x = index & 15, z = (index >> 4) & 15, y = (index >> 8) & 15;
+                BlockState oldState = oldSection.getBlockState(x, y, z);
+                BlockState state = section.getBlockState(x, y, z);
+                if (oldState != state && (PoiTypes.hasPoi(oldState) || PoiTypes.hasPoi(state))) {
+                    pos.set(sectionPos.minBlockX() + x, sectionPos.minBlockY() + y, sectionPos.minBlockZ() + z);
+                    level.onBlockStateChange(pos.immutable(), oldState, state);
+                }
+            }
+        }
+
+        chunk.getSections()[sectionIndex] = section;
+        primeHeightmaps(chunk);
+        chunk.setUnsaved(true);
+
+        // Light from a source without sky light can't stand in for a target with it
+        boolean lightCopied = blockLight != null && (skyLight != null || !level.dimensionType().hasSkyLight());
+        if (lightCopied) {
+            ChunkRelighter.copySectionLight(level, chunk, sectionPos, section, blockLight, skyLight);
+        } else {
+            markStale(sectionPos.asLong());
+        }
+        return lightCopied;
+    }
+
+    private static void primeHeightmaps(LevelChunk chunk) {
+        EnumSet<Heightmap.Types> types = EnumSet.noneOf(Heightmap.Types.class);
+        for (Map.Entry<Heightmap.Types, Heightmap> entry : chunk.getHeightmaps()) {
+            types.add(entry.getKey());
+        }
+        if (!types.isEmpty()) {
+            Heightmap.primeHeightmaps(chunk, types);
+        }
+    }
+
+    /**
+     * Write one batch into its section
+     */
+    private int writeSection(SectionBatch batch) {
+        SectionPos sectionPos = batch.pos;
+        LevelChunk chunk = level.getChunk(sectionPos.x(), sectionPos.z());
+        int sectionIndex = chunk.getSectionIndexFromSectionY(sectionPos.y());
+        if (sectionIndex < 0 || sectionIndex >= chunk.getSections().length) {
+            return 0; // Outside the build height
+        }
+
+        LevelChunkSection section = chunk.getSection(sectionIndex);
+        boolean wasEmpty = section.hasOnlyAir();
+        BlockState fillState = batch.uniformFillState();
+
+        if (fillState != null) {
+            // The batch covers the whole section with one state, so swap in a single-value palette
+            clearOldContents(chunk, section, batch);
+            PalettedContainer<BlockState> filled = new PalettedContainer<>(
+                Block.BLOCK_STATE_REGISTRY, fillState, PalettedContainer.Strategy.SECTION_STATES);
+            section = new LevelChunkSection(filled, section.getBiomes());
+            chunk.getSections()[sectionIndex] = section;
+        }
+
+        ServerChunkCache chunkSource = level.getChunkSource();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        int written = 0;
+
+        section.acquire();
+        try {
+            for (int i = 0; i < batch.size; i++) {
+                int index = batch.indices[i];
+                int x = index & 15;
+                int z = (index >> 4) & 15;
+                int y = (index >> 8) & 15;
+                BlockState state = batch.states[i];
+                pos.set(sectionPos.minBlockX() + x, sectionPos.minBlockY() + y, sectionPos.minBlockZ() + z);
+
+                BlockState oldState;
+                if (fillState != null) {
+                    oldState = batch.previousStates[i];
+                } else {
+                    oldState = section.setBlockState(x, y, z, state, false);
+                }
+                if (oldState == state) continue;
+
+                // Remove anything a previous build left behind
+                if (oldState.hasBlockEntity()) {
+                    chunk.removeBlockEntity(pos);
+                }
+                if (PoiTypes.hasPoi(oldState) || PoiTypes.hasPoi(state)) {
+                    level.onBlockStateChange(pos.immutable(), oldState, state);
+                }
+                if (unlitChunks == null && LightEngine.hasDifferentLightProperties(chunk, pos, oldState, state)) {
+                    chunkSource.getLightEngine().checkBlock(pos);
+                }
+
+                // Changes are batched per section and sent once per tick by the chunk holder
+                chunkSource.blockChanged(pos);
+                written++;
+            }
+        } finally {
+            section.release();
+        }
+
+        boolean isEmpty = section.hasOnlyAir();
+        if (unlitChunks == null && wasEmpty != isEmpty) {
+            chunkSource.getLightEngine().updateSectionStatus(sectionPos, isEmpty);
+        }
+
+        return written;
+    }
+
+    /**
+     * Record the old states of a section that is about to be replaced and drop its block entities
+     */
+    private void clearOldContents(LevelChunk chunk, LevelChunkSection section, SectionBatch batch) {
+        SectionPos sectionPos = batch.pos;
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        batch.previousStates = new BlockState[batch.size];
+
+        for (int i = 0; i < batch.size; i++) {
+            int index = batch.indices[i];
+            batch.previousStates[i] = section.getBlockState(index & 15, (index >> 8) & 15, (index >> 4) & 15);
+        }
+
+        // Block entities are not stored in the section, so remove them from the chunk
+        if (section.maybeHas(BlockState::hasBlockEntity)) {
+            for (int i = 0; i < batch.size; i++) {
+                if (batch.previousStates[i].hasBlockEntity()) {
+                    int index = batch.indices[i];
+                    pos.set(sectionPos.minBlockX() + (index & 15),
+                            sectionPos.minBlockY() + ((index >> 8) & 15),
+                            sectionPos.minBlockZ() + ((index >> 4) & 15));
+                    chunk.removeBlockEntity(pos);
+                    batch.previousStates[i] = Blocks.AIR.defaultBlockState();
+                }
+            }
+        }
+    }
+
+    /**
+     * Pending writes for one section, stored as section-local indices (y << 8 | z << 4 | x)
+     */
+    private static class SectionBatch {
+        final SectionPos pos;
+        short[] indices = new short[64];
+        BlockState[] states = new BlockState[64];
+        BlockState[] previousStates;
+        int size = 0;
+
+        SectionBatch(SectionPos pos) {
+            this.pos = pos;
+        }
+
+        void add(BlockPos blockPos, BlockState state) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                states = Arrays.copyOf(states, size * 2);
+            }
+            indices[size] = (short) (((blockPos.getY() & 15) << 8) | ((blockPos.getZ() & 15) << 4) | (blockPos.getX() & 15));
+            states[size] = state;
+            size++;
+        }
+
+        /**
+         * The single state this batch fills its whole section with, or null if it does not
+         */
+        BlockState uniformFillState() {
+            if (size < SECTION_VOLUME) {
+                return null;
+            }
+
+            BlockState first = states[0];
+            long[] covered = new long[SECTION_VOLUME / 64];
+            for (int i = 0; i < size; i++) {
+                if (states[i] != first) {
+                    return null;
+                }
+                int index = indices[i] & 0xFFF;
+                covered[index >> 6] |= 1L << (index & 63);
+            }
+            for (long bits : covered) {
+                if (bits != -1L) {
+                    return null;
+                }
+            }
+            return first;
+        }
+    }
+}
@@ -61,6 +61,9 @@ public class ServerLifecycleHandler {
             // Load table connections
             TablePersistenceManager.loadTableConnections(server);
             
+            // Continue builds that were interrupted by the last shutdown
+            ScanCheckpointManager.resumeScans(server);
+            
             dataLoaded = true;
             
             // Log current state
@@ -73,6 +76,8 @@ public class ServerLifecycleHandler {
     public static void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
         if (event.getEntity() instanceof ServerPlayer player) {
             PlayerDataManager.onPlayerLogout(player);
+            ScanSelectionManager.clear(player.getUUID());
+            ScanEstimator.clear(player.getUUID());
         }
     }
     @SubscribeEvent
@@ -93,6 +98,9 @@ public class ServerLifecycleHandler {
 
             TablePersistenceManager.saveTableConnections(server);
             
+            // Keep unfinished builds so they resume on the next start
+            ScanCheckpointManager.saveCheckpoint(server);
+            
         } catch (Exception e) {
             LOGGER.error("Error saving data during server stop", e);
         }
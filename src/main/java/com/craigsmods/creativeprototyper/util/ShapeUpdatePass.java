@@ -0,0 +1,132 @@
+package com.craigsmods.creativeprototyper.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+
+/**
+ * One shape update over a finished frozen build, run a section at a time across ticks.
+ * Every block is given the shape its final neighbors imply, so connections and unsupported
+ * attachments are fixed once instead of on every placement.
+ */
+public class ShapeUpdatePass {
+    // Placed without neighbor or shape updates of its own, the pass visits every block anyway
+    public static final int FROZEN_FLAGS = Block.UPDATE_CLIENTS | Block.UPDATE_KNOWN_SHAPE;
+
+    private final ServerLevel level;
+    private final BoundingBox box;
+    private final int minSectionX, minSectionY, minSectionZ;
+    private final int maxSectionX, maxSectionY, maxSectionZ;
+    private int sectionX, sectionY, sectionZ;
+    private int changedBlocks = 0;
+
+    public ShapeUpdatePass(ServerLevel level, BoundingBox box) {
+        this.level = level;
+        this.box = box;
+        this.minSectionX = SectionPos.blockToSectionCoord(box.minX());
+        this.minSectionY = SectionPos.blockToSectionCoord(box.minY());
+        this.minSectionZ = SectionPos.blockToSectionCoord(box.minZ());
+        this.maxSectionX = SectionPos.blockToSectionCoord(box.maxX());
+        this.maxSectionY = SectionPos.blockToSectionCoord(box.maxY());
+        this.maxSectionZ = SectionPos.blockToSectionCoord(box.maxZ());
+        this.sectionX = minSectionX;
+        this.sectionY = minSectionY;
+        this.sectionZ = minSectionZ;
+    }
+
+    /**
+     * Update sections until the deadline, always at least one. Returns true once the whole box is done.
+     */
+    public boolean run(long deadline) {
+        do {
+            if (isDone()) {
+                return true;
+            }
+            updateSection(sectionX, sectionY, sectionZ);
+
+            // Advance y first so one chunk is finished before the next is loaded
+            if (++sectionY > maxSectionY) {
+                sectionY = minSectionY;
+                if (++sectionZ > maxSectionZ) {
+                    sectionZ = minSectionZ;
+                    sectionX++;
+                }
+            }
+        } while (System.nanoTime() < deadline);
+        return isDone();
+    }
+
+    public boolean isDone() {
+        return sectionX > maxSectionX;
+    }
+
+    /**
+     * Blocks whose state changed so far
+     */
+    public int getChangedBlocks() {
+        return changedBlocks;
+    }
+
+    /**
+     * Drop the block and fluid ticks scheduled in the part of a section inside the box,
+     * so nothing starts falling or flowing. Ticks elsewhere in the build are left alone.
+     */
+    public static void clearScheduledTicks(ServerLevel level, BoundingBox box, long sectionKey) {
+        SectionPos sectionPos = SectionPos.of(sectionKey);
+        int minX = Math.max(box.minX(), sectionPos.minBlockX()), maxX = Math.min(box.maxX(), sectionPos.maxBlockX());
+        int minY = Math.max(box.minY(), sectionPos.minBlockY()), maxY = Math.min(box.maxY(), sectionPos.maxBlockY());
+        int minZ = Math.max(box.minZ(), sectionPos.minBlockZ()), maxZ = Math.min(box.maxZ(), sectionPos.maxBlockZ());
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return;
+        }
+
+        BoundingBox area = new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+        level.getBlockTicks().clearArea(area);
+        level.getFluidTicks().clearArea(area);
+    }
+
+    private void updateSection(int x, int y, int z) {
+        LevelChunk chunk = level.getChunk(x, z);
+        int sectionIndex = chunk.getSectionIndexFromSectionY(y);
+        if (sectionIndex < 0 || sectionIndex >= chunk.getSections().length) {
+            return;
+        }
+        LevelChunkSection section = chunk.getSection(sectionIndex);
+        if (section.hasOnlyAir()) {
+            return;
+        }
+
+        SectionPos sectionPos = SectionPos.of(x, y, z);
+        int fromX = Math.max(box.minX(), sectionPos.minBlockX()), toX = Math.min(box.maxX(), sectionPos.maxBlockX());
+        int fromY = Math.max(box.minY(), sectionPos.minBlockY()), toY = Math.min(box.maxY(), sectionPos.maxBlockY());
+        int fromZ = Math.max(box.minZ(), sectionPos.minBlockZ()), toZ = Math.min(box.maxZ(), sectionPos.maxBlockZ());
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        int changedBefore = changedBlocks;
+
+        for (int by = fromY; by <= toY; by++) {
+            for (int bz = fromZ; bz <= toZ; bz++) {
+                for (int bx = fromX; bx <= toX; bx++) {
+                    BlockState state = section.getBlockState(bx & 15, by & 15, bz & 15);
+                    if (state.isAir()) continue;
+
+                    pos.set(bx, by, bz);
+                    BlockState updated = Block.updateFromNeighbourShapes(state, level, pos);
+                    if (updated != state) {
+                        level.setBlock(pos, updated, FROZEN_FLAGS);
+                        changedBlocks++;
+                    }
+                }
+            }
+        }
+
+        // Changed blocks may have scheduled ticks of their own, dropped before the level runs them
+        if (changedBlocks != changedBefore) {
+            clearScheduledTicks(level, box, sectionPos.asLong());
+        }
+    }
+}
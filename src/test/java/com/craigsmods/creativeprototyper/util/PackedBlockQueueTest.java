@@ -0,0 +1,185 @@
+package com.craigsmods.creativeprototyper.util;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackedBlockQueueTest {
+    private static final int CHUNK_SIZE = 4096;
+    // Smallest limit, the head chunk and the chunk being written
+    private static final long TWO_CHUNKS = 1L;
+
+    @Test
+    void keepsOrderAcrossChunks() {
+        PackedBlockQueue queue = new PackedBlockQueue();
+        fill(queue, 0, 3 * CHUNK_SIZE + 17);
+        assertEquals(3 * CHUNK_SIZE + 17, queue.size());
+        assertFalse(queue.isSpilled());
+        drain(queue, 0, 3 * CHUNK_SIZE + 17);
+        assertTrue(queue.isEmpty());
+        assertThrows(NoSuchElementException.class, queue::peekPos);
+    }
+
+    @Test
+    void spillsAboveTheLimitAndReadsBackInOrder() {
+        PackedBlockQueue queue = new PackedBlockQueue(TWO_CHUNKS);
+        int count = 6 * CHUNK_SIZE + 100;
+        fill(queue, 0, count);
+        assertTrue(queue.isSpilled());
+        assertTrue(queue.getSpilledBytes() > 0);
+        assertTrue(queue.getMemoryBytes() <= 3L * CHUNK_SIZE * (Long.BYTES + Integer.BYTES));
+
+        drain(queue, 0, count);
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.isSpilled());
+        queue.clear();
+    }
+
+    @Test
+    void keepsOrderWhileAddingDuringUnspill() {
+        PackedBlockQueue queue = new PackedBlockQueue(TWO_CHUNKS);
+        int next = fill(queue, 0, 5 * CHUNK_SIZE);
+        int expected = 0;
+
+        // Take out more than is added each round, so the spill file drains and is reused
+        for (int round = 0; round < 15; round++) {
+            expected = drain(queue, expected, 3000);
+            next = fill(queue, next, 2000);
+        }
+        drain(queue, expected, next - expected);
+        assertTrue(queue.isEmpty());
+        queue.clear();
+    }
+
+    @Test
+    void countsAddedEntries() {
+        PackedBlockQueue queue = new PackedBlockQueue();
+        fill(queue, 0, 100);
+        drain(queue, 0, 40);
+        assertEquals(100, queue.getAddedCount());
+        assertEquals(60, queue.size());
+    }
+
+    @Test
+    void snapshotHoldsEveryEntryIncludingSpilled() throws IOException {
+        PackedBlockQueue queue = new PackedBlockQueue(TWO_CHUNKS);
+        int count = 5 * CHUNK_SIZE + 300;
+        fill(queue, 0, count);
+        drain(queue, 0, 1000);
+        assertTrue(queue.isSpilled());
+
+        PackedBlockQueue.Snapshot snapshot = queue.snapshot();
+        assertEquals(count - 1000, snapshot.size());
+        assertEquals(1000, snapshot.getFirstAdded());
+        assertSnapshot(snapshot, 1000, count);
+        snapshot.release();
+        queue.clear();
+    }
+
+    @Test
+    void snapshotStaysValidWhileTheQueueDrainsAndRefills() throws IOException {
+        PackedBlockQueue queue = new PackedBlockQueue(TWO_CHUNKS);
+        int count = 5 * CHUNK_SIZE;
+        fill(queue, 0, count);
+        PackedBlockQueue.Snapshot snapshot = queue.snapshot();
+
+        // Draining the spill file would truncate it, the snapshot keeps it alive instead
+        drain(queue, 0, count);
+        assertFalse(queue.isSpilled());
+        int next = fill(queue, count, 4 * CHUNK_SIZE);
+        assertTrue(queue.isSpilled());
+
+        assertSnapshot(snapshot, 0, count);
+        snapshot.release();
+        drain(queue, count, next - count);
+        queue.clear();
+    }
+
+    @Test
+    void snapshotSurvivesClear() throws IOException {
+        PackedBlockQueue queue = new PackedBlockQueue(TWO_CHUNKS);
+        int count = 4 * CHUNK_SIZE + 5;
+        fill(queue, 0, count);
+        PackedBlockQueue.Snapshot snapshot = queue.snapshot();
+        queue.clear();
+
+        assertSnapshot(snapshot, 0, count);
+        snapshot.release();
+    }
+
+    @Test
+    void snapshotFromAddedSkipsOlderEntries() throws IOException {
+        PackedBlockQueue queue = new PackedBlockQueue(TWO_CHUNKS);
+        int count = 6 * CHUNK_SIZE + 50;
+        fill(queue, 0, count);
+        drain(queue, 0, 10);
+
+        // Starts partway into a spilled chunk
+        long from = 2 * CHUNK_SIZE + 123;
+        PackedBlockQueue.Snapshot snapshot = queue.snapshot(from);
+        assertEquals(from, snapshot.getFirstAdded());
+        assertSnapshot(snapshot, (int) from, count);
+        snapshot.release();
+
+        // Entries already removed are not part of it even when asked for
+        snapshot = queue.snapshot(0L);
+        assertEquals(10, snapshot.getFirstAdded());
+        assertSnapshot(snapshot, 10, count);
+        snapshot.release();
+
+        // Nothing added since
+        snapshot = queue.snapshot(queue.getAddedCount());
+        assertEquals(0, snapshot.size());
+        snapshot.release();
+        queue.clear();
+    }
+
+    /**
+     * Add entries numbered from first, returns the number after the last
+     */
+    private static int fill(PackedBlockQueue queue, int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            queue.add(positionOf(i), i);
+        }
+        return first + count;
+    }
+
+    /**
+     * Remove entries, checking they are numbered from first, returns the number after the last
+     */
+    private static int drain(PackedBlockQueue queue, int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            assertEquals(positionOf(i), queue.peekPos());
+            assertEquals(i, queue.peekStateId());
+            queue.remove();
+        }
+        return first + count;
+    }
+
+    private static void assertSnapshot(PackedBlockQueue.Snapshot snapshot, int first, int end) throws IOException {
+        LongArrayList positions = new LongArrayList();
+        IntArrayList stateIds = new IntArrayList();
+        snapshot.forEachChunk((chunkPositions, chunkStateIds, count) -> {
+            assertTrue(count > 0 && count <= CHUNK_SIZE);
+            positions.addElements(positions.size(), chunkPositions, 0, count);
+            stateIds.addElements(stateIds.size(), chunkStateIds, 0, count);
+        });
+        assertEquals(end - first, positions.size());
+        for (int i = first; i < end; i++) {
+            assertEquals(positionOf(i), positions.getLong(i - first));
+            assertEquals(i, stateIds.getInt(i - first));
+        }
+    }
+
+    private static long positionOf(int i) {
+        return i * 31L + 7;
+    }
+}
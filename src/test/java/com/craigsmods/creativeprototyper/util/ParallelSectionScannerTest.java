@@ -0,0 +1,90 @@
+package com.craigsmods.creativeprototyper.util;
+
+import net.minecraft.core.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The shell mask math: a section is a 4096-bit mask of 64 words, cell index y << 8 | z << 4 | x
+ */
+class ParallelSectionScannerTest {
+    private static final int[] STRIDES = { 1, 16, 256 };
+
+    @Test
+    void shiftDownMovesEveryBitDownByN() {
+        long[] bits = randomMask(1);
+        for (int n : STRIDES) {
+            long[] shifted = ParallelSectionScanner.shiftDown(bits, n);
+            for (int c = 0; c < 4096; c++) {
+                assertEquals(c + n < 4096 && isSet(bits, c + n), isSet(shifted, c), "n=" + n + " cell " + c);
+            }
+        }
+    }
+
+    @Test
+    void shiftUpMovesEveryBitUpByN() {
+        long[] bits = randomMask(2);
+        for (int n : STRIDES) {
+            long[] shifted = ParallelSectionScanner.shiftUp(bits, n);
+            for (int c = 0; c < 4096; c++) {
+                assertEquals(c - n >= 0 && isSet(bits, c - n), isSet(shifted, c), "n=" + n + " cell " + c);
+            }
+        }
+    }
+
+    @Test
+    void faceCellsAreTheCellsOnThatFace() {
+        for (Direction side : Direction.values()) {
+            for (int c = 0; c < 4096; c++) {
+                int x = c & 15, z = c >> 4 & 15, y = c >> 8;
+                boolean onFace = switch (side) {
+                    case EAST -> x == 15;
+                    case WEST -> x == 0;
+                    case SOUTH -> z == 15;
+                    case NORTH -> z == 0;
+                    case UP -> y == 15;
+                    case DOWN -> y == 0;
+                };
+                long word = ParallelSectionScanner.faceCells(side, c >>> 6);
+                assertEquals(onFace, (word >>> (c & 63) & 1L) != 0, side + " cell " + c);
+            }
+        }
+    }
+
+    @Test
+    void shiftedMaskOffTheFaceIsTheNeighborInThatDirection() {
+        // One opaque cell somewhere inside, each cell off the face sees it only as its own neighbor
+        int x0 = 7, y0 = 9, z0 = 4;
+        long[] opaque = new long[64];
+        int opaqueCell = y0 << 8 | z0 << 4 | x0;
+        opaque[opaqueCell >>> 6] |= 1L << opaqueCell;
+
+        for (Direction side : Direction.values()) {
+            int stride = side.getAxis() == Direction.Axis.X ? 1 : side.getAxis() == Direction.Axis.Z ? 16 : 256;
+            long[] neighbors = side.getAxisDirection() == Direction.AxisDirection.POSITIVE
+                ? ParallelSectionScanner.shiftDown(opaque, stride) : ParallelSectionScanner.shiftUp(opaque, stride);
+            for (int c = 0; c < 4096; c++) {
+                if ((ParallelSectionScanner.faceCells(side, c >>> 6) >>> (c & 63) & 1L) != 0) continue;
+                int x = c & 15, z = c >> 4 & 15, y = c >> 8;
+                boolean neighborOpaque = x + side.getStepX() == x0 && y + side.getStepY() == y0 && z + side.getStepZ() == z0;
+                assertEquals(neighborOpaque, isSet(neighbors, c), side + " cell " + c);
+            }
+        }
+    }
+
+    private static long[] randomMask(long seed) {
+        Random random = new Random(seed);
+        long[] bits = new long[64];
+        for (int w = 0; w < 64; w++) {
+            bits[w] = random.nextLong();
+        }
+        return bits;
+    }
+
+    private static boolean isSet(long[] bits, int cell) {
+        return (bits[cell >>> 6] >>> (cell & 63) & 1L) != 0;
+    }
+}
@@ -0,0 +1,102 @@
+package com.craigsmods.creativeprototyper.util;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanRegionTest {
+
+    @Test
+    void boxContainsItsInclusiveBounds() {
+        ScanRegion region = ScanRegion.box(2, 3, 1);
+        assertTrue(region.contains(2, 3, -2));
+        assertTrue(region.contains(-2, -1, 2));
+        assertFalse(region.contains(3, 0, 0));
+        assertFalse(region.contains(0, 4, 0));
+        assertFalse(region.contains(0, -2, 0));
+    }
+
+    @Test
+    void cylinderIsRoundedLikeVanillaCircles() {
+        ScanRegion region = ScanRegion.cylinder(2, 0, 0);
+        assertTrue(region.contains(0, 0, 0));
+        assertTrue(region.contains(2, 0, 0));
+        assertTrue(region.contains(2, 0, -1));
+        assertFalse(region.contains(2, 0, 2));
+        assertFalse(region.contains(0, 1, 0));
+    }
+
+    @Test
+    void cornersAreOrderedWhicheverWayTheyArePicked() {
+        BlockPos origin = new BlockPos(100, 64, -50);
+        ScanRegion region = ScanRegion.fromCorners(origin, new BlockPos(105, 70, -45), new BlockPos(98, 60, -55));
+        assertEquals(-2, region.getMinX());
+        assertEquals(-4, region.getMinY());
+        assertEquals(-5, region.getMinZ());
+        assertEquals(5, region.getMaxX());
+        assertEquals(6, region.getMaxY());
+        assertEquals(5, region.getMaxZ());
+    }
+
+    @Test
+    void intersectsColumnsOfBox() {
+        ScanRegion region = ScanRegion.box(4, 0, 0);
+        assertTrue(region.intersectsColumns(4, 4, 20, 20));
+        assertTrue(region.intersectsColumns(-10, -10, 10, 10));
+        assertFalse(region.intersectsColumns(5, -4, 20, 4));
+    }
+
+    @Test
+    void intersectsColumnsOfCylinderUsesTheNearestPoint() {
+        ScanRegion region = ScanRegion.cylinder(5, 0, 0);
+        // Corner rectangle whose nearest column lies outside the rounded edge
+        assertFalse(region.intersectsColumns(4, 4, 10, 10));
+        // Rectangle crossing the axis is entered through its nearest column
+        assertTrue(region.intersectsColumns(-10, 3, 10, 10));
+        assertTrue(region.intersectsColumns(-1, -1, 1, 1));
+    }
+
+    @Test
+    void containsBoxChecksEveryCorner() {
+        ScanRegion cylinder = ScanRegion.cylinder(8, 4, 4);
+        assertTrue(cylinder.containsBox(-4, -4, -4, 4, 4, 4));
+        assertFalse(cylinder.containsBox(0, 0, 0, 8, 0, 8));
+        assertFalse(cylinder.containsBox(-4, -5, -4, 4, 4, 4));
+    }
+
+    @Test
+    void nbtRoundTrip() {
+        for (ScanRegion region : new ScanRegion[] {
+                ScanRegion.cube(16), ScanRegion.box(3, 10, 0), ScanRegion.cylinder(7, 2, 9),
+                ScanRegion.fromCorners(BlockPos.ZERO, new BlockPos(-30, 5, 12), new BlockPos(4, -8, -2)) }) {
+            CompoundTag parent = new CompoundTag();
+            parent.put("Region", region.save());
+            assertEquals(region, ScanRegion.load(parent));
+        }
+    }
+
+    @Test
+    void loadsRadiusSavedBeforeRegions() {
+        CompoundTag parent = new CompoundTag();
+        parent.putInt("Radius", 12);
+        assertEquals(ScanRegion.cube(12), ScanRegion.load(parent));
+    }
+
+    @Test
+    void wireRoundTrip() {
+        for (ScanRegion region : new ScanRegion[] {
+                ScanRegion.cube(16), ScanRegion.cylinder(7, 2, 9),
+                ScanRegion.fromCorners(BlockPos.ZERO, new BlockPos(-300, 5, 12), new BlockPos(4, -64, -2)) }) {
+            FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+            region.write(buf);
+            assertEquals(region, ScanRegion.read(buf));
+            assertEquals(0, buf.readableBytes());
+        }
+    }
+}